@@ -1,4 +1,4 @@
 #!/bin/bash
 
 . config.properties 
-java -cp "classes:lib/*" -Declipse.directory=$eclipseDir -Xmx6G rect_partition.PartitionProblem
+java -cp "classes:lib/*" -Declipse.directory=$eclipseDir -Xmx6G rect_partition.PartitionProblem "$@"
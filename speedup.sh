@@ -0,0 +1,57 @@
+#!/bin/bash
+
+# Measures the speedup of the parallel branch and bound (approach 18) over 1, 2,
+# 4 and N threads, N being the number of cores, and prints a markdown table of
+# the millis of each set. Usage: ./speedup.sh <input file> [from] [to]
+#
+# Each run uses a copy of config.properties in a temporary directory, so the
+# properties file of the project is not changed.
+
+if [ $# -lt 1 ]; then
+    echo "Usage: ./speedup.sh <input file> [from] [to]"
+    exit 1
+fi
+
+input=$(realpath "$1")
+from=${2:-1}
+to=${3:-$(head -1 "$input")}
+project=$(pwd)
+cores=$(nproc)
+
+threads="1 2 4"
+if [ "$cores" -gt 4 ]; then
+    threads="$threads $cores"
+fi
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+header="| parallelThreads |"
+separator="|---|"
+for set in $(seq "$from" "$to"); do
+    header="$header Set $set |"
+    separator="$separator---|"
+done
+
+echo "$cores cores, $(basename "$input") sets $from to $to, millis"
+echo
+echo "$header"
+echo "$separator"
+
+for t in $threads; do
+    sed "s/^parallelThreads=.*/parallelThreads=$t/" "$project/config.properties" > "$work/config.properties"
+
+    (cd "$work" && java -cp "$project/classes:$project/lib/*" -Xmx6G rect_partition.PartitionProblem batch \
+        --input "$input" --approach 18 --from "$from" --to "$to" --threads 1 > /dev/null 2>&1)
+
+    row="| $t |"
+    while IFS=, read -r set status solution expanded millis rest; do
+        if [ "$status" = "SOLVED" ]; then
+            row="$row $millis |"
+        else
+            row="$row $status |"
+        fi
+    done < <(tail -n +2 "$work/results.csv")
+
+    echo "$row"
+done
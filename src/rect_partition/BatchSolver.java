@@ -0,0 +1,276 @@
+package rect_partition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import rect_partition.approaches.AC3;
+import rect_partition.approaches.Approach;
+import rect_partition.approaches.CSPApproach;
+import rect_partition.approaches.Incumbent;
+import rect_partition.approaches.bounds.LowerBound;
+import rect_partition.utils.InstanceSource;
+import rect_partition.utils.PartitionProblemException;
+import rect_partition.utils.Utils;
+
+/**
+ * Non interactive mode. Solves a range of sets from a file with one approach,
+ * several sets at a time, and writes one result line per set.
+ *
+ * Usage: batch --input FILE [--approach N] [--from N] [--to N] [--threads N]
+ * [--format csv|json] [--output FILE] [--bound none|degree|packing|dual]
+ *
+ * The approach numbers are the ones of the interactive menu, except the
+ * ECLiPSe ones (14 and 15), which share a single engine and cannot run
+ * concurrently.
+ *
+ * The bound option overrides the lowerBound property, which makes it easy to
+ * compare the states expanded by the exact approaches with each lower bound.
+ */
+public class BatchSolver {
+
+    private static final String USAGE = "Usage: batch --input FILE [--approach N] [--from N] [--to N] [--threads N] "
+            + "[--format csv|json] [--output FILE] [--bound none|degree|packing|dual]";
+
+    /**
+     * The outcome of solving one set
+     */
+    static class Result {
+        int set;
+        String status;
+        int solution = -1;
+        int statesExpanded = 0;
+        long millis = 0;
+        Set<Vert> chosenVerts;
+        String message = "";
+    }
+
+    public static void run(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.out.println(USAGE);
+                return;
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+
+        if (!options.containsKey("input")) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        try {
+            int approach = Integer.parseInt(options.getOrDefault("approach", "1"));
+            int threads = Integer.parseInt(
+                    options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            String format = options.getOrDefault("format", "csv");
+            String output = options.getOrDefault("output", "results." + format);
+
+            if (approach < 1 || approach > 21 || approach == 14 || approach == 15)
+                throw new PartitionProblemException("The batch mode does not support the ECLiPSe approaches");
+            if (threads < 1)
+                throw new PartitionProblemException("The number of threads must be positive");
+            if (!format.equals("csv") && !format.equals("json"))
+                throw new PartitionProblemException("Unknown output format " + format);
+            if (options.containsKey("bound"))
+                LowerBound.setType(options.get("bound"));
+
+            List<Result> results;
+
+            try (InstanceSource source = InstanceSource.open(new File(options.get("input")))) {
+                int from = Integer.parseInt(options.getOrDefault("from", "1"));
+                int to = Integer.parseInt(options.getOrDefault("to", String.valueOf(source.getNumInstances())));
+
+                if (from < 1 || to > source.getNumInstances() || from > to)
+                    throw new PartitionProblemException(
+                            "The set range must be within 1 and " + source.getNumInstances());
+
+                results = solve(source, approach, from, to, threads);
+            }
+
+            write(results, format, output);
+            System.out.println("Solved " + results.size() + " sets. Results written to " + output);
+
+        } catch (Exception e) {
+            Utils.logError(e);
+        }
+    }
+
+    /**
+     * Solves the sets from..to (starting at 1) on a pool of the given size. Only
+     * a bounded number of sets is read ahead of the solvers, so memory does not
+     * grow with the size of the file.
+     */
+    private static List<Result> solve(InstanceSource source, int approach, int from, int to, int threads)
+            throws Exception {
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        // Each set is solved on its own daemon thread, so that a set that runs out of
+        // time does not hold its pool thread nor keep the JVM alive
+        ExecutorService solvers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+
+        Semaphore readAhead = new Semaphore(threads * 2);
+        List<Future<Result>> futures = new ArrayList<>();
+
+        try {
+            source.seekInstance(from - 1);
+
+            for (int set = from; set <= to; set++) {
+                readAhead.acquire();
+
+                Instance instance = source.next();
+                int setNumber = set;
+
+                futures.add(pool.submit(() -> {
+                    try {
+                        return solveSet(solvers, instance, approach, setNumber);
+                    } finally {
+                        readAhead.release();
+                    }
+                }));
+            }
+
+            List<Result> results = new ArrayList<>(futures.size());
+            for (Future<Result> f : futures)
+                results.add(f.get());
+
+            return results;
+        } finally {
+            pool.shutdownNow();
+            solvers.shutdownNow();
+        }
+    }
+
+    private static Result solveSet(ExecutorService solvers, Instance instance, int approachNumber, int setNumber) {
+        Result result = new Result();
+        result.set = setNumber;
+
+        Approach approach = null;
+        CSPApproach cspApproach = null;
+        Future<Integer> f;
+
+        long startingTime = System.currentTimeMillis();
+
+        if (approachNumber == 13) {
+            CSPApproach csp = new AC3(instance);
+            cspApproach = csp;
+            f = solvers.submit(() -> csp.solve());
+        } else {
+            Approach search;
+            try {
+                search = PartitionProblem.prepareApproach(approachNumber, instance);
+            } catch (PartitionProblemException e) {
+                result.status = "ERROR";
+                result.message = String.valueOf(e.getMessage());
+                return result;
+            }
+
+            approach = search;
+            f = solvers.submit(() -> search.solve());
+        }
+
+        try {
+            result.solution = f.get(Approach.timeout, TimeUnit.SECONDS);
+            result.status = "SOLVED";
+        } catch (TimeoutException e) {
+            if (approach != null)
+                approach.cancel();
+            f.cancel(true);
+            result.status = "TIMEOUT";
+        } catch (ExecutionException e) {
+            result.status = "ERROR";
+            result.message = String.valueOf(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            if (approach != null)
+                approach.cancel();
+            f.cancel(true);
+            result.status = "INTERRUPTED";
+            Thread.currentThread().interrupt();
+        }
+
+        result.millis = System.currentTimeMillis() - startingTime;
+
+        if (approach != null) {
+            result.statesExpanded = approach.getStatesExpanded();
+            if (result.status.equals("SOLVED")) {
+                result.chosenVerts = approach.getChosenVerts();
+            } else {
+                // An approach that was stopped still reports the best solution it found
+                Incumbent best = approach.getIncumbent();
+                if (best != null) {
+                    result.solution = best.getSize();
+                    result.chosenVerts = best.getChosenVerts();
+                }
+            }
+        } else {
+            result.statesExpanded = cspApproach.getArcsChecked();
+            if (result.status.equals("SOLVED")) {
+                result.chosenVerts = cspApproach.getChosenVerts();
+            } else if (!cspApproach.getChosenVerts().isEmpty()) {
+                // A search that was stopped still reports the best solution it found
+                result.chosenVerts = cspApproach.getChosenVerts();
+                result.solution = result.chosenVerts.size();
+            }
+        }
+
+        return result;
+    }
+
+    private static void write(List<Result> results, String format, String output) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileOutputStream(output, false));
+
+        if (format.equals("csv")) {
+            writer.println("set,status,solution,states_expanded,millis,verts,message");
+            for (Result r : results) {
+                writer.println(r.set + "," + r.status + "," + r.solution + "," + r.statesExpanded + "," + r.millis
+                        + ",\"" + vertList(r.chosenVerts) + "\",\"" + r.message.replace("\"", "\"\"") + "\"");
+            }
+        } else {
+            writer.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                writer.print("  {\"set\": " + r.set + ", \"status\": \"" + r.status + "\", \"solution\": "
+                        + r.solution + ", \"statesExpanded\": " + r.statesExpanded + ", \"millis\": " + r.millis
+                        + ", \"verts\": [" + vertList(r.chosenVerts).replace("(", "[").replace(")", "]")
+                        + "], \"message\": \"" + r.message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}");
+                writer.println(i == results.size() - 1 ? "" : ",");
+            }
+            writer.println("]");
+        }
+
+        writer.close();
+    }
+
+    private static String vertList(Set<Vert> verts) {
+        if (verts == null)
+            return "";
+
+        StringBuilder sb = new StringBuilder();
+        for (Vert v : verts) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,166 @@
+package rect_partition;
+
+import java.util.Arrays;
+
+/**
+ * Splits a problem set into independent parts. Two rectangles are in the same
+ * part if they share a vert, directly or through other rectangles, so the
+ * parts are the connected components of the incidence graph between verts and
+ * rectangles. A cover of the whole set is the union of a cover of each part,
+ * and a minimum cover is the union of minimum covers.
+ *
+ * Verts that cover no rectangle belong to no part.
+ */
+public class Decomposition {
+
+    public static boolean enabled = true;
+
+    private final Instance instance;
+    private final Instance[] components;
+
+    // The index in the whole instance of each vert of each component
+    private final int[][] vertMaps;
+
+    public Decomposition(Instance instance) {
+        this.instance = instance;
+
+        int numVerts = instance.getNumVerts();
+        int numRectangles = instance.getNumRectangles();
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+
+        // Union-find over the rectangles, joining the rectangles of each vert
+        int[] parent = new int[numRectangles];
+        for (int r = 0; r < numRectangles; r++)
+            parent[r] = r;
+
+        for (int v = 0; v < numVerts; v++) {
+            for (int k = vertStart[v] + 1; k < vertStart[v + 1]; k++)
+                union(parent, vertRects[vertStart[v]], vertRects[k]);
+        }
+
+        // Number the components and the rectangles inside each one
+        int[] component = new int[numRectangles];
+        int[] rectIndex = new int[numRectangles];
+        int[] rootComponent = new int[numRectangles];
+        Arrays.fill(rootComponent, -1);
+
+        int numComponents = 0;
+        int[] numComponentRects = new int[numRectangles];
+
+        for (int r = 0; r < numRectangles; r++) {
+            int root = find(parent, r);
+            if (rootComponent[root] < 0)
+                rootComponent[root] = numComponents++;
+
+            component[r] = rootComponent[root];
+            rectIndex[r] = numComponentRects[component[r]]++;
+        }
+
+        int[] numComponentVerts = new int[numComponents];
+        int[] numComponentEntries = new int[numComponents];
+
+        for (int v = 0; v < numVerts; v++) {
+            if (vertStart[v] == vertStart[v + 1])
+                continue;
+
+            int c = component[vertRects[vertStart[v]]];
+            numComponentVerts[c]++;
+            numComponentEntries[c] += vertStart[v + 1] - vertStart[v];
+        }
+
+        Vert[][] verts = new Vert[numComponents][];
+        int[][] rectangleIds = new int[numComponents][];
+        int[][] starts = new int[numComponents][];
+        int[][] rects = new int[numComponents][];
+        this.vertMaps = new int[numComponents][];
+
+        for (int c = 0; c < numComponents; c++) {
+            verts[c] = new Vert[numComponentVerts[c]];
+            rectangleIds[c] = new int[numComponentRects[c]];
+            starts[c] = new int[numComponentVerts[c] + 1];
+            rects[c] = new int[numComponentEntries[c]];
+            vertMaps[c] = new int[numComponentVerts[c]];
+        }
+
+        for (int r = 0; r < numRectangles; r++)
+            rectangleIds[component[r]][rectIndex[r]] = instance.getRectangleId(r);
+
+        int[] filled = new int[numComponents];
+
+        for (int v = 0; v < numVerts; v++) {
+            if (vertStart[v] == vertStart[v + 1])
+                continue;
+
+            int c = component[vertRects[vertStart[v]]];
+            int i = filled[c]++;
+
+            verts[c][i] = instance.getVert(v);
+            vertMaps[c][i] = v;
+
+            int[] start = starts[c];
+            start[i + 1] = start[i];
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                rects[c][start[i + 1]++] = rectIndex[vertRects[k]];
+        }
+
+        this.components = new Instance[numComponents];
+        for (int c = 0; c < numComponents; c++)
+            components[c] = new Instance(verts[c], rectangleIds[c], starts[c], rects[c]);
+    }
+
+    private static int find(int[] parent, int r) {
+        while (parent[r] != r) {
+            parent[r] = parent[parent[r]];
+            r = parent[r];
+        }
+        return r;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if (a != b)
+            parent[Math.max(a, b)] = Math.min(a, b);
+    }
+
+    public Instance getInstance() {
+        return instance;
+    }
+
+    public int getNumComponents() {
+        return components.length;
+    }
+
+    public Instance getComponent(int c) {
+        return components[c];
+    }
+
+    /**
+     * Joins a state of each component into a state of the whole instance
+     *
+     * @param states - one state per component
+     * @return the state of the whole instance
+     */
+    public State merge(State[] states) {
+        State s = new State(instance);
+
+        for (int c = 0; c < components.length; c++) {
+            for (int v : states[c].getChosenIndexes())
+                s.addVert(vertMaps[c][v]);
+        }
+
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        int largest = 0;
+        for (Instance component : components)
+            largest = Math.max(largest, component.getNumRectangles());
+
+        return "Decomposition: " + components.length + " independent parts, the largest with " + largest
+                + " rectangles";
+    }
+
+}
@@ -0,0 +1,201 @@
+package rect_partition;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A problem set with dense indexes. Every vert gets an index in 0..V-1 and every
+ * rectangle to be covered gets an index in 0..R-1. The incidence between them
+ * is kept in both directions as compressed rows of primitive ints, so solvers
+ * can work with array lookups instead of hash lookups.
+ */
+public class Instance {
+
+    private final Vert[] verts;
+    private final VertTable vertIndexes;
+    private final int[] rectangleIds;
+
+    // Vert -> rectangles: the rectangles of vert v are vertRects[vertStart[v]..vertStart[v+1])
+    private final int[] vertStart;
+    private final int[] vertRects;
+
+    // Rectangle -> verts: the verts of rectangle r are rectVerts[rectStart[r]..rectStart[r+1])
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    // A random 64 bit key per vert. The hash of a set of verts is the xor of their keys
+    private long[] vertKeys;
+
+    /**
+     * Builds the dense indexes for a problem set. Rectangles that are not in the
+     * goal set are not indexed, since no solver ever needs to track them
+     *
+     * @param verts             all the verts in the set
+     * @param rectanglesToCover the rectangles to be covered
+     */
+    public Instance(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
+        Vert[] vertArray = verts.toArray(new Vert[0]);
+        Map<Integer, Integer> rectangleIndexes = new HashMap<>(rectanglesToCover.size() * 2);
+        int[] ids = new int[rectanglesToCover.size()];
+
+        int r = 0;
+        for (int id : rectanglesToCover) {
+            if (!rectangleIndexes.containsKey(id)) {
+                rectangleIndexes.put(id, r);
+                ids[r++] = id;
+            }
+        }
+
+        int[] start = new int[vertArray.length + 1];
+        for (int v = 0; v < vertArray.length; v++) {
+            int degree = 0;
+            for (int id : vertArray[v].getRectangles()) {
+                if (rectangleIndexes.containsKey(id))
+                    degree++;
+            }
+            start[v + 1] = start[v] + degree;
+        }
+
+        int[] rects = new int[start[vertArray.length]];
+        for (int v = 0; v < vertArray.length; v++) {
+            int k = start[v];
+            for (int id : vertArray[v].getRectangles()) {
+                Integer index = rectangleIndexes.get(id);
+                if (index != null)
+                    rects[k++] = index;
+            }
+        }
+
+        this.verts = vertArray;
+        this.rectangleIds = r == ids.length ? ids : Arrays.copyOf(ids, r);
+        this.vertStart = start;
+        this.vertRects = rects;
+        this.rectStart = new int[r + 1];
+        this.rectVerts = new int[rects.length];
+        this.vertIndexes = new VertTable(vertArray.length);
+
+        index();
+    }
+
+    /**
+     * Builds an instance straight from its compressed vert rows
+     *
+     * @param verts        the verts, by index
+     * @param rectangleIds the original identifier of each rectangle index
+     * @param vertStart    the row offsets of each vert, with V+1 entries
+     * @param vertRects    the rectangle indexes of every vert, concatenated
+     */
+    public Instance(Vert[] verts, int[] rectangleIds, int[] vertStart, int[] vertRects) {
+        this.verts = verts;
+        this.rectangleIds = rectangleIds;
+        this.vertStart = vertStart;
+        this.vertRects = vertRects;
+        this.rectStart = new int[rectangleIds.length + 1];
+        this.rectVerts = new int[vertRects.length];
+        this.vertIndexes = new VertTable(verts.length);
+
+        index();
+    }
+
+    /**
+     * Fills the derived structures: the transposed rows and the vert lookup
+     */
+    private void index() {
+        for (int k = 0; k < vertRects.length; k++)
+            rectStart[vertRects[k] + 1]++;
+
+        for (int r = 0; r < rectangleIds.length; r++)
+            rectStart[r + 1] += rectStart[r];
+
+        int[] fill = rectStart.clone();
+
+        // Zobrist keys from a fixed seed, so hashes are the same on every run
+        vertKeys = new long[verts.length];
+        SplittableRandom random = new SplittableRandom(0x5eed);
+        for (int v = 0; v < verts.length; v++)
+            vertKeys[v] = random.nextLong();
+
+        for (int v = 0; v < verts.length; v++) {
+            vertIndexes.add(verts[v]);
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                rectVerts[fill[vertRects[k]]++] = v;
+        }
+    }
+
+    public int getNumVerts() {
+        return verts.length;
+    }
+
+    public int getNumRectangles() {
+        return rectangleIds.length;
+    }
+
+    public Vert getVert(int index) {
+        return verts[index];
+    }
+
+    /**
+     * @param v - the vert to look up
+     * @return the index of the vert, or -1 if it is not part of this instance
+     */
+    public int indexOf(Vert v) {
+        return vertIndexes.indexOf(v.getX(), v.getY());
+    }
+
+    /**
+     * @param v - the index of a vert
+     * @return the random key of the vert, used to hash sets of verts
+     */
+    public long getVertKey(int v) {
+        return vertKeys[v];
+    }
+
+    public int getRectangleId(int index) {
+        return rectangleIds[index];
+    }
+
+    public int getVertDegree(int v) {
+        return vertStart[v + 1] - vertStart[v];
+    }
+
+    public int getRectangleDegree(int r) {
+        return rectStart[r + 1] - rectStart[r];
+    }
+
+    /**
+     * Row offsets of the vert -> rectangles adjacency. The array is shared and must
+     * not be modified
+     */
+    public int[] getVertStart() {
+        return vertStart;
+    }
+
+    /**
+     * Rectangle indexes of the vert -> rectangles adjacency. The array is shared
+     * and must not be modified
+     */
+    public int[] getVertRects() {
+        return vertRects;
+    }
+
+    /**
+     * Row offsets of the rectangle -> verts adjacency. The array is shared and must
+     * not be modified
+     */
+    public int[] getRectStart() {
+        return rectStart;
+    }
+
+    /**
+     * Vert indexes of the rectangle -> verts adjacency. The array is shared and
+     * must not be modified
+     */
+    public int[] getRectVerts() {
+        return rectVerts;
+    }
+
+}
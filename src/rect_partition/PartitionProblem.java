@@ -7,10 +7,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
@@ -18,6 +15,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
@@ -29,6 +27,10 @@ import com.parctechnologies.eclipse.EclipseEngineOptions;
 import com.parctechnologies.eclipse.EmbeddedEclipse;
 
 import rect_partition.utils.DataConverter;
+import rect_partition.utils.BinaryInstanceFile;
+import rect_partition.utils.InstanceSource;
+import rect_partition.utils.PartitionProblemException;
+import rect_partition.utils.TranspositionTable;
 import rect_partition.utils.Utils;
 import rect_partition.approaches.AC3;
 import rect_partition.approaches.AStar;
@@ -36,16 +38,27 @@ import rect_partition.approaches.Approach;
 import rect_partition.approaches.BFS;
 import rect_partition.approaches.BranchAndBound;
 import rect_partition.approaches.CSPApproach;
+import rect_partition.approaches.Decomposed;
 import rect_partition.approaches.DFS;
 import rect_partition.approaches.GreedyHardestRectanglesFirst;
 import rect_partition.approaches.GreedyMostCoverageFirst;
+import rect_partition.approaches.IDAStar;
 import rect_partition.approaches.IDDFS;
+import rect_partition.approaches.Incumbent;
 import rect_partition.approaches.IteratedLocalSearch;
+import rect_partition.approaches.LPBranchAndBound;
+import rect_partition.approaches.ParallelBranchAndBound;
+import rect_partition.approaches.ParallelIteratedLocalSearch;
+import rect_partition.approaches.ParallelTempering;
+import rect_partition.approaches.Portfolio;
+import rect_partition.approaches.Preprocessed;
+import rect_partition.approaches.Pruned;
 import rect_partition.approaches.SimulatedAnnealing;
+import rect_partition.approaches.bounds.LowerBound;
 
 public class PartitionProblem {
 
-    private static final int NUM_APPROACHES = 15;
+    private static final int NUM_APPROACHES = 21;
     private static final String headerText = "Welcome to the Rectangle Partition Problem.\nThis software was designed and developed by Diogo Barbosa.\n";
 
     private static int selectedApproach;
@@ -58,6 +71,18 @@ public class PartitionProblem {
     private static String CLPsearchMethod = "complete";
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("convert")) {
+            convert(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("batch")) {
+            setupLogger();
+            readProperties();
+            BatchSolver.run(args);
+            return;
+        }
+
         Scanner stdin = new Scanner(System.in);
 
         setupLogger();
@@ -81,9 +106,15 @@ public class PartitionProblem {
             System.out.println("10: Iterated Local Search");
             System.out.println("11: ILS with Randomization");
             System.out.println("12: Simulated Annealing");
-            System.out.println("13: CSP - AC-3");
+            System.out.println("13: CSP - AC-3 with watched verts, searching the smallest cover");
             System.out.println("14: ECLiPSe CLP");
             System.out.println("15: ECLiPSe CLP - Assign colors to verts");
+            System.out.println("16: Portfolio - Greedy, SA, ILS and Branch And Bound racing on all cores");
+            System.out.println("17: IDA* - A* with iterative deepening, in bounded memory");
+            System.out.println("18: Parallel Branch And Bound - Subtrees shared by all cores");
+            System.out.println("19: Integer Programming - Simplex relaxation, cuts and branch and bound");
+            System.out.println("20: Parallel Tempering - Simulated annealing replicas exchanged across cores");
+            System.out.println("21: Parallel ILS - Local searches on all cores, restarting from a pool of elite covers");
 
             int chosen = stdin.nextInt();
             Utils.clearWindow(headerText);
@@ -99,10 +130,10 @@ public class PartitionProblem {
             System.out.print("Insert the file path: ");
 
             String filePath = stdin.next();
-            Scanner file;
+            InstanceSource file;
             try {
-                file = new Scanner(new File(filePath));
-            } catch (IOException e) {
+                file = InstanceSource.open(new File(filePath));
+            } catch (Exception e) {
                 Utils.logError(e);
                 stdin.close();
                 return;
@@ -110,9 +141,17 @@ public class PartitionProblem {
 
             Utils.clearWindow(headerText);
 
-            loadSets(file, stdin);
+            try {
+                loadSets(file, stdin);
+            } catch (PartitionProblemException e) {
+                Utils.logError(e);
+            }
 
-            file.close();
+            try {
+                file.close();
+            } catch (IOException e) {
+                Utils.logError(e);
+            }
 
             System.out.print("Do you wish to start again? (Y/N): ");
 
@@ -123,7 +162,29 @@ public class PartitionProblem {
         stdin.close();
     }
 
-    private static void readProperties() {
+    /**
+     * Compiles a text set file into the binary format, so later runs can load it
+     * without parsing. Usage: convert input.txt output.bin
+     *
+     * @param args - the command line arguments
+     */
+    private static void convert(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: convert <input file> <output file>");
+            return;
+        }
+
+        try {
+            long startingTime = System.currentTimeMillis();
+            int sets = BinaryInstanceFile.compile(new File(args[1]), new File(args[2]));
+            long elapsedTime = System.currentTimeMillis() - startingTime;
+            System.out.println("Compiled " + sets + " sets into " + args[2] + " in " + elapsedTime + "ms");
+        } catch (Exception e) {
+            Utils.logError(e);
+        }
+    }
+
+    static void readProperties() {
         try {
             Properties properties = new Properties();
             String propFile = "config.properties";
@@ -151,14 +212,55 @@ public class PartitionProblem {
             SimulatedAnnealing.COOLING_RATE = Double
                     .valueOf(properties.getProperty("SAcoolingRate", String.valueOf(SimulatedAnnealing.COOLING_RATE)));
 
-            SimulatedAnnealing.VERTS_REMOVE_PERCENTAGE = Double.valueOf(properties.getProperty("SAvertRemovePercentage",
-                    String.valueOf(SimulatedAnnealing.VERTS_REMOVE_PERCENTAGE)));
-
-            SimulatedAnnealing.VERTS_ADD_PERCENTAGE = Double.valueOf(properties.getProperty("SAvertAddPercentage",
-                    String.valueOf(SimulatedAnnealing.VERTS_ADD_PERCENTAGE)));
+            SimulatedAnnealing.FINAL_TEMP = Double.valueOf(
+                    properties.getProperty("SAfinalTemperature", String.valueOf(SimulatedAnnealing.FINAL_TEMP)));
 
             Approach.timeout = Integer.valueOf(properties.getProperty("timeout", String.valueOf(Approach.timeout)));
 
+            // An unknown bound keeps the default, without skipping the properties after it
+            try {
+                LowerBound.setType(properties.getProperty("lowerBound", LowerBound.TYPE));
+            } catch (PartitionProblemException e) {
+                Utils.logError(e);
+            }
+
+            Preprocessor.enabled = Boolean
+                    .valueOf(properties.getProperty("preprocess", String.valueOf(Preprocessor.enabled)));
+
+            TranspositionTable.BITS = Integer.valueOf(
+                    properties.getProperty("transpositionTableBits", String.valueOf(TranspositionTable.BITS)));
+
+            Decomposition.enabled = Boolean
+                    .valueOf(properties.getProperty("decompose", String.valueOf(Decomposition.enabled)));
+
+            RedundancyElimination.enabled = Boolean
+                    .valueOf(properties.getProperty("prune", String.valueOf(RedundancyElimination.enabled)));
+
+            Approach.canonicalBranching = Boolean.valueOf(
+                    properties.getProperty("canonicalBranching", String.valueOf(Approach.canonicalBranching)));
+
+            ParallelBranchAndBound.THREADS = Integer.valueOf(
+                    properties.getProperty("parallelThreads", String.valueOf(ParallelBranchAndBound.THREADS)));
+            ParallelBranchAndBound.SPLIT_DEPTH = Integer.valueOf(
+                    properties.getProperty("parallelSplitDepth", String.valueOf(ParallelBranchAndBound.SPLIT_DEPTH)));
+
+            LPBranchAndBound.CUT_ROUNDS = Integer.valueOf(
+                    properties.getProperty("LPcutRounds", String.valueOf(LPBranchAndBound.CUT_ROUNDS)));
+
+            ParallelTempering.REPLICAS = Integer
+                    .valueOf(properties.getProperty("PTreplicas", String.valueOf(ParallelTempering.REPLICAS)));
+            ParallelTempering.MIN_TEMP = Double
+                    .valueOf(properties.getProperty("PTminTemperature", String.valueOf(ParallelTempering.MIN_TEMP)));
+            ParallelTempering.MAX_TEMP = Double
+                    .valueOf(properties.getProperty("PTmaxTemperature", String.valueOf(ParallelTempering.MAX_TEMP)));
+            ParallelTempering.ROUNDS = Integer
+                    .valueOf(properties.getProperty("PTrounds", String.valueOf(ParallelTempering.ROUNDS)));
+
+            ParallelIteratedLocalSearch.THREADS = Integer
+                    .valueOf(properties.getProperty("ILSthreads", String.valueOf(ParallelIteratedLocalSearch.THREADS)));
+            ParallelIteratedLocalSearch.ELITE_POOL_SIZE = Integer.valueOf(properties.getProperty("ILSelitePoolSize",
+                    String.valueOf(ParallelIteratedLocalSearch.ELITE_POOL_SIZE)));
+
             CLPchoiceMethod = properties.getProperty("CLPchoiceMethod", CLPchoiceMethod);
             CLPselectionMethod = properties.getProperty("CLPselectionMethod", CLPselectionMethod);
             CLPsearchMethod = properties.getProperty("CLPsearchMethod", CLPsearchMethod);
@@ -205,8 +307,8 @@ public class PartitionProblem {
      * @param file
      * @param stdin
      */
-    private static void loadSets(Scanner file, Scanner stdin) {
-        int sets = file.nextInt();
+    private static void loadSets(InstanceSource file, Scanner stdin) throws PartitionProblemException {
+        int sets = file.getNumInstances();
 
         System.out.println("Number of sets: " + sets);
         System.out.println();
@@ -217,7 +319,7 @@ public class PartitionProblem {
             if (ans.toLowerCase().startsWith("y"))
                 solveSet(file, stdin, i + 1);
             else if (ans.toLowerCase().startsWith("s"))
-                skipSet(file);
+                file.skip();
             else
                 break;
 
@@ -226,49 +328,27 @@ public class PartitionProblem {
 
     }
 
-    private static void skipSet(Scanner file) {
-        int r = file.nextInt();
-
-        for (int i = 0; i < r; i++) {
-            file.nextInt();
-            int vn = file.nextInt();
-            for (int j = 0; j < vn; j++) {
-                file.nextInt();
-                file.nextInt();
-            }
-        }
-
-        int cr = file.nextInt();
-
-        for (int i = 0; i < cr; i++) {
-            file.nextInt();
-        }
-    }
-
     /**
      * Solves the next set in the file
      * 
      * @param file
      * @param stdin
      */
-    private static void solveSet(Scanner file, Scanner stdin, int setNumber) {
+    private static void solveSet(InstanceSource file, Scanner stdin, int setNumber)
+            throws PartitionProblemException {
+
+        Instance instance = file.next();
 
-        if (selectedApproach >= 14) {
-            solveProlog(file, stdin, setNumber);
+        if (selectedApproach == 14 || selectedApproach == 15) {
+            solveProlog(instance, stdin, setNumber);
             return;
         }
 
-        int rectangles = file.nextInt();
-        Map<Integer, Vert> vertMap = new HashMap<>();
-        Set<Integer> rectanglesToCover = new HashSet<>();
-
-        readSetData(rectangles, rectanglesToCover, vertMap, file);
-
         if (selectedApproach == 13) {
-            CSPApproach approach = new AC3(vertMap.values(), rectanglesToCover);
+            CSPApproach approach = new AC3(instance);
             startSolving(approach, stdin, setNumber);
         } else {
-            Approach approach = chooseApproach(vertMap.values(), rectanglesToCover);
+            Approach approach = prepareApproach(selectedApproach, instance);
             startSolving(approach, stdin, setNumber);
         }
 
@@ -281,24 +361,91 @@ public class PartitionProblem {
 
             long startingTime = System.currentTimeMillis();
 
+            approach.setIncumbentListener(incumbent -> System.out.println("New best solution: " + incumbent));
+
             Future<Integer> f = service.submit(() -> {
                 return approach.solve();
             });
 
-            int answer = f.get(Approach.timeout, TimeUnit.SECONDS);
+            int answer;
+            Set<Vert> chosenVerts;
+            boolean timedOut = false;
+
+            try {
+                answer = f.get(Approach.timeout, TimeUnit.SECONDS);
+                chosenVerts = approach.getChosenVerts();
+            } catch (TimeoutException e) {
+                // Stop the approach and keep the best solution it found so far
+                approach.cancel();
+                f.cancel(true);
+                timedOut = true;
+
+                Incumbent best = approach.getIncumbent();
+                if (best == null)
+                    throw new PartitionProblemException("Timed out before finding a solution", e);
+
+                answer = best.getSize();
+                chosenVerts = best.getChosenVerts();
+            }
 
             long elapsedTime = (System.currentTimeMillis() - startingTime) / 1000;
 
             Utils.clearWindow(headerText);
 
+            if (timedOut)
+                System.out.println("Timed out. Showing the best solution found.");
             System.out.println("Number of vertexes in solution: " + answer);
             System.out.println("Number of states expanded: " + approach.getStatesExpanded());
+
+            Approach search = approach;
+            if (search instanceof Preprocessed) {
+                System.out.println(((Preprocessed) search).getPreprocessor());
+                search = ((Preprocessed) search).getApproach();
+            }
+            if (search instanceof Pruned) {
+                System.out.println("Redundant verts dropped: " + ((Pruned) search).getDropped());
+                search = ((Pruned) search).getApproach();
+            }
+            if (search instanceof Decomposed)
+                System.out.println(((Decomposed) search).getDecomposition());
+
+            if (search instanceof IDAStar) {
+                IDAStar idaStar = (IDAStar) search;
+                for (int i = 0; i < idaStar.getThresholds().size(); i++)
+                    System.out.println("Iteration " + (i + 1) + ": threshold " + idaStar.getThresholds().get(i)
+                            + ", states expanded " + idaStar.getIterationStates().get(i));
+            }
+
+            if (search instanceof LPBranchAndBound) {
+                LPBranchAndBound lp = (LPBranchAndBound) search;
+                System.out.println("Relaxation at the root: " + lp.getRootValue() + ", with " + lp.getNumCuts() + " cuts");
+            }
+
+            if (search instanceof ParallelTempering) {
+                ParallelTempering pt = (ParallelTempering) search;
+                System.out.println("Temperatures: " + Arrays.toString(pt.getTemperatures())
+                        + ", exchanges accepted: " + Math.round(100 * pt.getExchangeRate()) + "%");
+            }
+
+            if (search instanceof ParallelIteratedLocalSearch) {
+                ParallelIteratedLocalSearch ils = (ParallelIteratedLocalSearch) search;
+                double[] throughput = ils.getThroughput();
+                for (int i = 0; i < throughput.length; i++)
+                    System.out.println("Thread " + (i + 1) + ": " + Math.round(throughput[i]) + " iterations/s");
+                System.out.println("Restarts from the elite pool: " + ils.getRestarts());
+            }
+
+            if (search instanceof Portfolio) {
+                Portfolio portfolio = (Portfolio) search;
+                System.out.println("Found by: " + portfolio.getWinner()
+                        + (portfolio.isProvenOptimal() ? " (proven optimal)" : ""));
+            }
             System.out.println("Elapsed Time: " + elapsedTime + "s");
             System.out.println();
             System.out.print("Do you want to get an output of the vertexes chosen? (Y/N): ");
 
             if (stdin.next().toLowerCase().startsWith("y")) {
-                String filename = outputVertexes(approach.getChosenVerts(), setNumber);
+                String filename = outputVertexes(chosenVerts, setNumber);
                 System.out.println("Your file is located at " + filename);
             }
 
@@ -320,14 +467,31 @@ public class PartitionProblem {
                 return approach.solve();
             });
 
-            int answer = f.get(Approach.timeout, TimeUnit.SECONDS);
+            int answer;
+            boolean timedOut = false;
+
+            try {
+                answer = f.get(Approach.timeout, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // Stop the search and keep the best solution it found so far
+                f.cancel(true);
+                timedOut = true;
+                answer = approach.getChosenVerts().size();
+
+                if (answer == 0)
+                    throw new PartitionProblemException("Timed out before finding a solution", e);
+            }
 
             long elapsedTime = (System.currentTimeMillis() - startingTime) / 1000;
 
             Utils.clearWindow(headerText);
 
+            if (timedOut)
+                System.out.println("Timed out. Showing the best solution found.");
             System.out.println("Number of vertexes in solution: " + answer);
             System.out.println("Number of arcs checked: " + approach.getArcsChecked());
+            if (approach instanceof AC3)
+                System.out.println("Number of search nodes: " + ((AC3) approach).getNodes());
             System.out.println("Elapsed Time: " + elapsedTime + "s");
             System.out.println();
             System.out.print("Do you want to get an output of the vertexes chosen? (Y/N): ");
@@ -345,9 +509,9 @@ public class PartitionProblem {
         }
     }
 
-    private static void solveProlog(Scanner file, Scanner stdin, int setNumber) {
+    private static void solveProlog(Instance instance, Scanner stdin, int setNumber) {
         try {
-            DataConverter.generatePrologDataFile(file);
+            DataConverter.generatePrologDataFile(instance);
 
             if (!engineStarted) {
                 startEclipseEngine();
@@ -402,78 +566,95 @@ public class PartitionProblem {
     /**
      * Returns an instance of the approach chosen
      * 
-     * @param verts             all the verts in the set
-     * @param rectanglesToCover the rectangles to be covered
-     * @return the approach
+     * @param approach - the number of the approach in the menu
+     * @param instance - the indexed problem set
+     * @return the approach, or null if the number is not a search approach
      */
-    private static Approach chooseApproach(Collection<Vert> verts, Set<Integer> rectanglesToCover) {
-        switch (selectedApproach) {
+    static Approach chooseApproach(int approach, Instance instance) {
+        switch (approach) {
             case 1:
-                return new GreedyMostCoverageFirst(verts, rectanglesToCover);
+                return new GreedyMostCoverageFirst(instance);
             case 2:
-                return new GreedyHardestRectanglesFirst(verts, rectanglesToCover);
+                return new GreedyHardestRectanglesFirst(instance);
             case 3:
-                return new BFS(verts, rectanglesToCover, true);
+                return new BFS(instance, true);
             case 4:
-                return new BFS(verts, rectanglesToCover, false);
+                return new BFS(instance, false);
             case 5:
-                return new DFS(verts, rectanglesToCover, true);
+                return new DFS(instance, true);
             case 6:
-                return new DFS(verts, rectanglesToCover, false);
+                return new DFS(instance, false);
             case 7:
-                return new IDDFS(verts, rectanglesToCover);
+                return new IDDFS(instance);
             case 8:
-                return new BranchAndBound(verts, rectanglesToCover);
+                return new BranchAndBound(instance);
             case 9:
-                return new AStar(verts, rectanglesToCover);
+                return new AStar(instance);
             case 10:
-                return new IteratedLocalSearch(verts, rectanglesToCover, false);
+                return new IteratedLocalSearch(instance, false);
             case 11:
-                return new IteratedLocalSearch(verts, rectanglesToCover, true);
+                return new IteratedLocalSearch(instance, true);
             case 12:
-                return new SimulatedAnnealing(verts, rectanglesToCover);
+                return new SimulatedAnnealing(instance);
+            case 16:
+                return new Portfolio(instance);
+            case 17:
+                return new IDAStar(instance);
+            case 18:
+                return new ParallelBranchAndBound(instance);
+            case 19:
+                return new LPBranchAndBound(instance);
+            case 20:
+                return new ParallelTempering(instance);
+            case 21:
+                return new ParallelIteratedLocalSearch(instance);
         }
 
         return null;
     }
 
     /**
-     * Reads the set data. This includes all the rectangles and vertexes.
-     * 
-     * @param rectangles - the number of rectangles in the set
-     * @param vertMap    - the map containing the vertexes
-     * @param file       - the file scanner
+     * Returns an instance of the approach chosen. Unless the preprocess property
+     * is off, the set is reduced first and the approach solves the reduced set.
+     * Unless the decompose property is off, each independent part of the set is
+     * then solved on its own. Unless the prune property is off, the redundant
+     * verts of every solution are dropped
+     *
+     * @param approach - the number of the approach in the menu
+     * @param instance - the indexed problem set
+     * @return the approach, or null if the number is not a search approach
+     * @throws PartitionProblemException if the reduction finds the set cannot be
+     *                                   covered
      */
-    private static void readSetData(int rectangles, Set<Integer> rectanglesToCover, Map<Integer, Vert> vertMap,
-            Scanner file) {
-        // Read the rectangles
-        for (int i = 0; i < rectangles; i++) {
-            int currentRect = file.nextInt();
-
-            int numVerts = file.nextInt();
+    static Approach prepareApproach(int approach, Instance instance) throws PartitionProblemException {
+        Preprocessor preprocessor = null;
 
-            // Read the vertexes
-            for (int j = 0; j < numVerts; j++) {
-                int x = file.nextInt();
-                int y = file.nextInt();
-
-                Vert v = new Vert(x, y);
+        if (Preprocessor.enabled) {
+            preprocessor = new Preprocessor(instance);
+            instance = preprocessor.getReduced();
+        }
 
-                // If we've already added this vert, get its reference
-                if (vertMap.containsValue(v))
-                    v = vertMap.get(v.hashCode());
-                else
-                    vertMap.put(v.hashCode(), v);
+        Decomposition decomposition = Decomposition.enabled ? new Decomposition(instance) : null;
+        Approach search;
 
-                v.getRectangles().add(currentRect);
+        if (decomposition != null && decomposition.getNumComponents() > 1) {
+            Approach[] parts = new Approach[decomposition.getNumComponents()];
+            for (int c = 0; c < parts.length; c++) {
+                parts[c] = chooseApproach(approach, decomposition.getComponent(c));
+                if (parts[c] == null)
+                    return null;
             }
+            search = new Decomposed(decomposition, parts);
+        } else {
+            search = chooseApproach(approach, instance);
+            if (search == null)
+                return null;
         }
 
-        int r = file.nextInt();
-        for (int i = 0; i < r; i++) {
-            rectanglesToCover.add(file.nextInt());
-        }
+        if (RedundancyElimination.enabled)
+            search = new Pruned(search);
 
+        return preprocessor == null ? search : new Preprocessed(preprocessor, search);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package rect_partition;
+
+import java.util.Arrays;
+
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Shrinks a problem set before it is solved. Only the rectangles to be covered
+ * are indexed by the instance, so the reductions start from those, and the
+ * following rules are applied until none of them changes anything:
+ *
+ * - A rectangle that only one vert covers forces that vert into every solution,
+ * and every rectangle it covers is dropped.
+ *
+ * - A vert whose rectangles are a subset of the rectangles of another vert is
+ * never needed, since the other one can always replace it.
+ *
+ * - A rectangle whose verts are a superset of the verts of another rectangle is
+ * covered whenever the other one is, so it is dropped.
+ *
+ * The verts of the reduced instance are the same objects as the original ones,
+ * so a solution of the reduced instance only needs the forced verts to become a
+ * solution of the original one.
+ */
+public class Preprocessor {
+
+    public static boolean enabled = true;
+
+    private final Instance original;
+    private final Instance reduced;
+
+    // The original indexes of the forced verts and of the verts kept
+    private final int[] forced;
+    private final int[] vertMap;
+
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    private final boolean[] vertAlive;
+    private final boolean[] rectAlive;
+
+    // Marks of the verts or rectangles of the element being compared
+    private final int[] marks;
+    private int stamp = 0;
+
+    /**
+     * Reduces a problem set
+     *
+     * @param instance - the indexed problem set
+     * @throws PartitionProblemException if some rectangle has no vert to cover it
+     */
+    public Preprocessor(Instance instance) throws PartitionProblemException {
+        this.original = instance;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+
+        int numVerts = instance.getNumVerts();
+        int numRectangles = instance.getNumRectangles();
+
+        this.vertAlive = new boolean[numVerts];
+        this.rectAlive = new boolean[numRectangles];
+        this.marks = new int[Math.max(numVerts, numRectangles)];
+        Arrays.fill(vertAlive, true);
+        Arrays.fill(rectAlive, true);
+
+        int[] forcedVerts = new int[numVerts];
+        int numForced = 0;
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            // Rectangles with a single vert left force it
+            for (int r = 0; r < numRectangles; r++) {
+                if (!rectAlive[r])
+                    continue;
+
+                int degree = rectangleDegree(r);
+
+                if (degree == 0)
+                    throw new PartitionProblemException(
+                            "Rectangle " + instance.getRectangleId(r) + " must be covered but has no verts");
+
+                if (degree == 1) {
+                    int v = -1;
+                    for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                        if (vertAlive[rectVerts[k]])
+                            v = rectVerts[k];
+                    }
+
+                    forcedVerts[numForced++] = v;
+                    vertAlive[v] = false;
+                    for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                        rectAlive[vertRects[k]] = false;
+
+                    changed = true;
+                }
+            }
+
+            changed |= removeDominatedRectangles();
+            changed |= removeDominatedVerts();
+        }
+
+        this.forced = Arrays.copyOf(forcedVerts, numForced);
+
+        // Index what is left as a new instance
+        int[] rectIndex = new int[numRectangles];
+        int numRectanglesLeft = 0;
+        for (int r = 0; r < numRectangles; r++)
+            rectIndex[r] = rectAlive[r] ? numRectanglesLeft++ : -1;
+
+        int[] rectangleIds = new int[numRectanglesLeft];
+        for (int r = 0; r < numRectangles; r++) {
+            if (rectAlive[r])
+                rectangleIds[rectIndex[r]] = instance.getRectangleId(r);
+        }
+
+        int numVertsLeft = 0;
+        for (int v = 0; v < numVerts; v++) {
+            if (vertAlive[v])
+                numVertsLeft++;
+        }
+
+        this.vertMap = new int[numVertsLeft];
+        Vert[] verts = new Vert[numVertsLeft];
+        int[] start = new int[numVertsLeft + 1];
+        int[] rects = new int[vertRects.length];
+        int i = 0;
+
+        for (int v = 0; v < numVerts; v++) {
+            if (!vertAlive[v])
+                continue;
+
+            vertMap[i] = v;
+            verts[i] = instance.getVert(v);
+            start[i + 1] = start[i];
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                int r = vertRects[k];
+                if (rectAlive[r])
+                    rects[start[i + 1]++] = rectIndex[r];
+            }
+            i++;
+        }
+
+        this.reduced = new Instance(verts, rectangleIds, start, Arrays.copyOf(rects, start[numVertsLeft]));
+    }
+
+    /**
+     * Drops every rectangle whose verts contain the verts of another rectangle. Of
+     * two rectangles with the same verts, the one with the lowest index is kept
+     *
+     * @return true if some rectangle was dropped
+     */
+    private boolean removeDominatedRectangles() {
+        boolean changed = false;
+
+        for (int r = 0; r < rectAlive.length; r++) {
+            if (!rectAlive[r])
+                continue;
+
+            int degree = rectangleDegree(r);
+            stamp++;
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++)
+                marks[rectVerts[k]] = stamp;
+
+            // A rectangle inside r shares at least one vert with it
+            search: for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int u = rectVerts[k];
+                if (!vertAlive[u])
+                    continue;
+
+                for (int j = vertStart[u]; j < vertStart[u + 1]; j++) {
+                    int s = vertRects[j];
+                    if (s == r || !rectAlive[s])
+                        continue;
+
+                    int other = rectangleDegree(s);
+                    if (other > degree || (other == degree && s > r))
+                        continue;
+
+                    if (contained(rectVerts, rectStart[s], rectStart[s + 1], vertAlive)) {
+                        rectAlive[r] = false;
+                        changed = true;
+                        break search;
+                    }
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Drops every vert whose rectangles are contained in the rectangles of
+     * another vert. Of two verts with the same rectangles, the one with the lowest
+     * index is kept
+     *
+     * @return true if some vert was dropped
+     */
+    private boolean removeDominatedVerts() {
+        boolean changed = false;
+
+        for (int v = 0; v < vertAlive.length; v++) {
+            if (!vertAlive[v])
+                continue;
+
+            int degree = vertDegree(v);
+
+            if (degree == 0) {
+                vertAlive[v] = false;
+                changed = true;
+                continue;
+            }
+
+            // A vert that dominates v covers every rectangle of v, so it is among the
+            // verts of any of them
+            int first = -1;
+            for (int k = vertStart[v]; k < vertStart[v + 1] && first < 0; k++) {
+                if (rectAlive[vertRects[k]])
+                    first = vertRects[k];
+            }
+
+            for (int j = rectStart[first]; j < rectStart[first + 1]; j++) {
+                int w = rectVerts[j];
+                if (w == v || !vertAlive[w])
+                    continue;
+
+                int other = vertDegree(w);
+                if (other < degree || (other == degree && w > v))
+                    continue;
+
+                stamp++;
+                for (int k = vertStart[w]; k < vertStart[w + 1]; k++)
+                    marks[vertRects[k]] = stamp;
+
+                if (contained(vertRects, vertStart[v], vertStart[v + 1], rectAlive)) {
+                    vertAlive[v] = false;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return true if every alive element of row[from..to) has the current stamp
+     */
+    private boolean contained(int[] row, int from, int to, boolean[] alive) {
+        for (int k = from; k < to; k++) {
+            if (alive[row[k]] && marks[row[k]] != stamp)
+                return false;
+        }
+        return true;
+    }
+
+    private int rectangleDegree(int r) {
+        int degree = 0;
+        for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+            if (vertAlive[rectVerts[k]])
+                degree++;
+        }
+        return degree;
+    }
+
+    private int vertDegree(int v) {
+        int degree = 0;
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            if (rectAlive[vertRects[k]])
+                degree++;
+        }
+        return degree;
+    }
+
+    public Instance getOriginal() {
+        return original;
+    }
+
+    /**
+     * @return the instance left to solve once the forced verts are chosen
+     */
+    public Instance getReduced() {
+        return reduced;
+    }
+
+    public int getForcedCount() {
+        return forced.length;
+    }
+
+    /**
+     * Maps a state of the reduced instance back to the original one, adding the
+     * forced verts
+     *
+     * @param state - a state of the reduced instance
+     * @return the state of the original instance
+     */
+    public State restore(State state) {
+        State s = new State(original);
+
+        for (int v : forced)
+            s.addVert(v);
+        for (int v : state.getChosenIndexes())
+            s.addVert(vertMap[v]);
+
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        return "Preprocessing: " + original.getNumVerts() + " verts and " + original.getNumRectangles()
+                + " rectangles reduced to " + reduced.getNumVerts() + " verts and " + reduced.getNumRectangles()
+                + " rectangles, with " + forced.length + " verts forced";
+    }
+
+}
@@ -0,0 +1,70 @@
+package rect_partition;
+
+import java.util.Arrays;
+
+/**
+ * Drops the redundant verts of a cover: the verts whose rectangles are all
+ * covered by other chosen verts. With the number of chosen verts covering each
+ * rectangle, each vert is checked and dropped in time proportional to the
+ * number of its rectangles, so the whole cover is pruned in one pass.
+ *
+ * Dropping a vert only lowers the counts, so a vert that is kept stays needed,
+ * and the pruned cover has no redundant vert left. The verts that cover the
+ * fewest rectangles are checked first, since they are the least likely to be
+ * the only cover of one.
+ */
+public class RedundancyElimination {
+
+    public static boolean enabled = true;
+
+    private RedundancyElimination() {
+    }
+
+    /**
+     * @param s - a state
+     * @return a copy of the state without its redundant verts, or the state itself
+     *         if it is not final or has none
+     */
+    public static State prune(State s) {
+        if (!s.isFinal())
+            return s;
+
+        Instance instance = s.getInstance();
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+
+        int[] counts = s.getCoverCounts();
+        int[] chosen = s.getChosenIndexes();
+
+        // By number of rectangles in the high bits and index in the low ones
+        long[] order = new long[chosen.length];
+        for (int i = 0; i < chosen.length; i++) {
+            int v = chosen[i];
+            order[i] = ((long) (vertStart[v + 1] - vertStart[v]) << 32) | v;
+        }
+        Arrays.sort(order);
+
+        State pruned = null;
+
+        for (long key : order) {
+            int v = (int) key;
+
+            boolean redundant = true;
+            for (int k = vertStart[v]; k < vertStart[v + 1] && redundant; k++)
+                redundant = counts[vertRects[k]] > 1;
+
+            if (!redundant)
+                continue;
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                counts[vertRects[k]]--;
+
+            if (pruned == null)
+                pruned = new State(s);
+            pruned.dropRedundantVert(v);
+        }
+
+        return pruned == null ? s : pruned;
+    }
+
+}
@@ -1,81 +1,242 @@
 package rect_partition;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import rect_partition.utils.PartitionProblemException;
 
+/**
+ * A state of the search. It is kept as a single bitset over the dense indexes
+ * of the instance: the first words hold the chosen verts and the remaining ones
+ * hold the covered rectangles. Cloning a state is therefore one array copy, and
+ * choosing a vert sets one bit per rectangle it covers.
+ *
+ * The chosen verts alone determine a state, so a state is also identified by
+ * the xor of the random keys of its chosen verts (a Zobrist hash), which is kept
+ * up to date as verts are chosen.
+ */
 public class State {
 
-    private Set<Vert> chosenVerts = new HashSet<>();
-    private Set<Vert> vertsLeft = new HashSet<>();
-    private Set<Integer> rectanglesLeft = new HashSet<>();
-    private Set<Integer> rectanglesCovered = new HashSet<>();
+    private final Instance instance;
+    private final int vertWords;
+    private final long[] bits;
+    private long hash = 0;
 
     /**
      * Constructor for an empty state
-     * 
-     * @param verts             to be chosen
-     * @param rectanglesToCover the rectangles to be covered
+     *
+     * @param instance - the indexed problem set
      */
-    public State(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        this.vertsLeft = new HashSet<>(verts);
-        this.rectanglesLeft = new HashSet<>(rectanglesToCover);
+    public State(Instance instance) {
+        this.instance = instance;
+        this.vertWords = words(instance.getNumVerts());
+        this.bits = new long[vertWords + words(instance.getNumRectangles())];
     }
 
     /**
      * Constructor for a clone state
-     * 
+     *
      * @param s - the state to clone
      */
     public State(State s) {
-        this.chosenVerts = new HashSet<>(s.getChosenVerts());
-        this.vertsLeft = new HashSet<>(s.getVertsLeft());
-        this.rectanglesLeft = new HashSet<>(s.getRectanglesLeft());
-        this.rectanglesCovered = new HashSet<>(s.getRectanglesCovered());
+        this.instance = s.instance;
+        this.vertWords = s.vertWords;
+        this.bits = s.bits.clone();
+        this.hash = s.hash;
+    }
+
+    /**
+     * @param n - the number of bits
+     * @return the number of words needed to hold n bits
+     */
+    private static int words(int n) {
+        return (n + 63) >>> 6;
+    }
+
+    public Instance getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the Zobrist hash of the chosen verts
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public boolean isChosen(int v) {
+        return (bits[v >>> 6] & (1L << v)) != 0;
+    }
+
+    public boolean isCovered(int r) {
+        return (bits[vertWords + (r >>> 6)] & (1L << r)) != 0;
+    }
+
+    public int getChosenCount() {
+        return count(0, vertWords);
+    }
+
+    public int getVertsLeftCount() {
+        return instance.getNumVerts() - getChosenCount();
+    }
+
+    public int getRectanglesCoveredCount() {
+        return count(vertWords, bits.length);
+    }
+
+    public int getRectanglesLeftCount() {
+        return instance.getNumRectangles() - getRectanglesCoveredCount();
+    }
+
+    private int count(int from, int to) {
+        int c = 0;
+        for (int i = from; i < to; i++)
+            c += Long.bitCount(bits[i]);
+        return c;
+    }
+
+    /**
+     * @return the indexes of the chosen verts, in increasing order
+     */
+    public int[] getChosenIndexes() {
+        int[] indexes = new int[getChosenCount()];
+        int k = 0;
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (isChosen(v))
+                indexes[k++] = v;
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the indexes of the verts left, in increasing order
+     */
+    public int[] getVertsLeftIndexes() {
+        int[] indexes = new int[getVertsLeftCount()];
+        int k = 0;
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (!isChosen(v))
+                indexes[k++] = v;
+        }
+        return indexes;
     }
 
     public Set<Vert> getVertsLeft() {
-        return vertsLeft;
+        Set<Vert> set = new HashSet<>();
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (!isChosen(v))
+                set.add(instance.getVert(v));
+        }
+        return set;
     }
 
     public Set<Vert> getChosenVerts() {
-        return chosenVerts;
+        Set<Vert> set = new HashSet<>();
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (isChosen(v))
+                set.add(instance.getVert(v));
+        }
+        return set;
     }
 
     public Set<Integer> getRectanglesLeft() {
-        return rectanglesLeft;
+        Set<Integer> set = new HashSet<>();
+        for (int r = 0; r < instance.getNumRectangles(); r++) {
+            if (!isCovered(r))
+                set.add(instance.getRectangleId(r));
+        }
+        return set;
     }
 
     public Set<Integer> getRectanglesCovered() {
-        return rectanglesCovered;
+        Set<Integer> set = new HashSet<>();
+        for (int r = 0; r < instance.getNumRectangles(); r++) {
+            if (isCovered(r))
+                set.add(instance.getRectangleId(r));
+        }
+        return set;
     }
 
     /**
      * Checks if this is a final state by comparing the number of rectangles covered
      * to the total number of rectangles
-     * 
+     *
      * @return true if the state is final; false otherwise
      */
     public boolean isFinal() {
-        return rectanglesLeft.isEmpty();
+        return getRectanglesCoveredCount() == instance.getNumRectangles();
+    }
+
+    /**
+     * @return the highest index of a chosen vert, or -1 if there is none
+     */
+    public int getLastChosen() {
+        for (int w = vertWords - 1; w >= 0; w--) {
+            if (bits[w] != 0)
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[w]);
+        }
+        return -1;
+    }
+
+    /**
+     * The verts a canonical search chooses from in this state. Verts are chosen in
+     * increasing index order, so every set of verts is built once, from its lowest
+     * vert to its highest. A vert that covers no rectangle left is skipped, since
+     * it would be redundant in any solution built from here, and so is every vert
+     * past the highest vert of some rectangle left, since that rectangle could not
+     * be covered afterwards.
+     *
+     * @return the indexes of the verts, in increasing order
+     */
+    public int[] getCanonicalChildren() {
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+        int[] rectStart = instance.getRectStart();
+        int[] rectVerts = instance.getRectVerts();
+
+        int last = getLastChosen();
+        int limit = instance.getNumVerts() - 1;
+
+        // The verts of each rectangle are in increasing order
+        for (int r = 0; r < instance.getNumRectangles(); r++) {
+            if (!isCovered(r))
+                limit = Math.min(limit, rectStart[r] == rectStart[r + 1] ? -1 : rectVerts[rectStart[r + 1] - 1]);
+        }
+
+        if (limit <= last)
+            return new int[0];
+
+        int[] children = new int[limit - last];
+        int n = 0;
+
+        for (int v = last + 1; v <= limit; v++) {
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                if (!isCovered(vertRects[k])) {
+                    children[n++] = v;
+                    break;
+                }
+            }
+        }
+
+        return Arrays.copyOf(children, n);
     }
 
     /**
      * Expands this state by getting all the vertex choices. Therefore, this is a
      * O(V) operation.
-     * 
+     *
      * @return the list of neighbour states
      * @throws PartitionProblemException
      */
     public List<State> expand() throws PartitionProblemException {
-        List<State> neighbours = new ArrayList<>(vertsLeft.size());
+        List<State> neighbours = new ArrayList<>(getVertsLeftCount());
 
-        for (Vert v : vertsLeft) {
-            neighbours.add(chooseVert(v));
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (!isChosen(v))
+                neighbours.add(chooseVert(v));
         }
 
         return neighbours;
@@ -83,65 +244,143 @@ public class State {
 
     /**
      * Gets the resulting state of choosing another vert
-     * 
+     *
      * @param v - the vert to choose
      * @return the resulting state
      */
     public State chooseVert(Vert v) throws PartitionProblemException {
-        State clone = new State(this);
+        return chooseVert(instance.indexOf(v));
+    }
 
-        if (!clone.vertsLeft.contains(v)) {
+    /**
+     * Gets the resulting state of choosing another vert
+     *
+     * @param v - the index of the vert to choose
+     * @return the resulting state
+     */
+    public State chooseVert(int v) throws PartitionProblemException {
+        if (v < 0 || isChosen(v))
             throw new PartitionProblemException("Chosen vertex must be in the available vertexes");
-        } else {
-            clone.vertsLeft.remove(v);
-            clone.chosenVerts.add(v);
-            clone.rectanglesLeft.removeAll(v.getRectangles());
-            clone.rectanglesCovered.addAll(v.getRectangles());
-        }
+
+        State clone = new State(this);
+        clone.addVert(v);
 
         return clone;
     }
 
+    /**
+     * Chooses a vert in this state, instead of in a copy of it
+     *
+     * @param v - the index of the vert to choose, which must not be chosen yet
+     */
+    public void addVert(int v) {
+        bits[v >>> 6] |= 1L << v;
+        hash ^= instance.getVertKey(v);
+        cover(v);
+    }
+
+    /**
+     * Sets the bits of the rectangles covered by a vert
+     */
+    private void cover(int v) {
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            int r = vertRects[k];
+            bits[vertWords + (r >>> 6)] |= 1L << r;
+        }
+    }
+
     /**
      * Gets the resulting state of unchoosing a vert
-     * 
+     *
      * @param v - the vert to unchoose
      * @return the resulting state
      */
     public State unchooseVert(Vert v) throws PartitionProblemException {
-        State clone = new State(this);
+        return unchooseVert(instance.indexOf(v));
+    }
 
-        if (!clone.chosenVerts.contains(v)) {
+    /**
+     * Gets the resulting state of unchoosing a vert. The coverage is rebuilt from
+     * the remaining chosen verts
+     *
+     * @param v - the index of the vert to unchoose
+     * @return the resulting state
+     */
+    public State unchooseVert(int v) throws PartitionProblemException {
+        if (v < 0 || !isChosen(v))
             throw new PartitionProblemException("The vertex must be in the chosen vertexes");
-        } else {
-            clone.vertsLeft.add(v);
-            clone.chosenVerts.remove(v);
-            Set<Integer> coveredRectangles = new HashSet<>();
-            for (Vert vert : clone.chosenVerts) {
-                coveredRectangles.addAll(vert.getRectangles());
-            }
-            clone.rectanglesCovered.removeAll(coveredRectangles);
-            clone.rectanglesLeft.addAll(clone.rectanglesCovered);
-            clone.rectanglesCovered = new HashSet<>(coveredRectangles);
+
+        State clone = new State(this);
+        clone.bits[v >>> 6] &= ~(1L << v);
+        clone.hash ^= instance.getVertKey(v);
+        Arrays.fill(clone.bits, vertWords, bits.length, 0L);
+
+        for (int u = 0; u < instance.getNumVerts(); u++) {
+            if (clone.isChosen(u))
+                clone.cover(u);
         }
 
         return clone;
     }
 
+    /**
+     * Unchooses a vert in this state, instead of in a copy of it. Every rectangle
+     * it covers must be covered by another chosen vert, so the coverage does not
+     * change
+     *
+     * @param v - the index of the vert to unchoose, which must be redundant
+     */
+    public void dropRedundantVert(int v) {
+        bits[v >>> 6] &= ~(1L << v);
+        hash ^= instance.getVertKey(v);
+    }
+
+    /**
+     * @return the number of chosen verts covering each rectangle
+     */
+    public int[] getCoverCounts() {
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+        int[] counts = new int[instance.getNumRectangles()];
+
+        for (int v : getChosenIndexes()) {
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                counts[vertRects[k]]++;
+        }
+
+        return counts;
+    }
+
     /**
      * Returns the neighbour solutions of the current state. A neighbour solution is
-     * a state that is also final but with one less vertex
-     * 
+     * a state that is also final but with one less vertex. With the number of
+     * chosen verts covering each rectangle, those are the verts whose rectangles
+     * are all covered twice or more, found in one pass
+     *
      * @return the list of the neighbours
-     * @throws PartitionProblemException
      */
-    public List<State> neighbourSolutions() throws PartitionProblemException {
-        List<State> neighbours = new ArrayList<>(vertsLeft.size());
-
-        for (Vert v : chosenVerts) {
-            State unchoose = unchooseVert(v);
-            if (unchoose.isFinal())
-                neighbours.add(unchoose);
+    public List<State> neighbourSolutions() {
+        List<State> neighbours = new ArrayList<>();
+        if (!isFinal())
+            return neighbours;
+
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+        int[] counts = getCoverCounts();
+
+        for (int v : getChosenIndexes()) {
+            boolean redundant = true;
+            for (int k = vertStart[v]; k < vertStart[v + 1] && redundant; k++)
+                redundant = counts[vertRects[k]] > 1;
+
+            if (redundant) {
+                State neighbour = new State(this);
+                neighbour.dropRedundantVert(v);
+                neighbours.add(neighbour);
+            }
         }
 
         return neighbours;
@@ -151,16 +390,17 @@ public class State {
 
         // This bias will allow us to separate final solutions from non-final
         if (!this.isFinal()) {
-            return (chosenVerts.size() * 2) + vertsLeft.size() + 1;
+            return (getChosenCount() * 2) + getVertsLeftCount() + 1;
         }
 
-        return chosenVerts.size();
+        return getChosenCount();
     }
 
     @Override
     public String toString() {
-        return "Rectangles Left To Be Covered: " + rectanglesLeft + "\n" + "Chosen Verts: " + chosenVerts + "\n"
-                + "Verts Left: " + vertsLeft + "\n" + "Covered Rectangles: " + rectanglesCovered + "\n";
+        return "Rectangles Left To Be Covered: " + getRectanglesLeft() + "\n" + "Chosen Verts: " + getChosenVerts()
+                + "\n" + "Verts Left: " + getVertsLeft() + "\n" + "Covered Rectangles: " + getRectanglesCovered()
+                + "\n";
     }
 
     @Override
@@ -173,12 +413,11 @@ public class State {
 
         State s = (State) o;
 
-        return s.rectanglesLeft.equals(this.rectanglesLeft) && s.chosenVerts.equals(this.chosenVerts)
-                && s.vertsLeft.equals(this.vertsLeft) && s.rectanglesCovered.equals(this.rectanglesCovered);
+        return s.instance == this.instance && Arrays.equals(s.bits, this.bits);
     }
 
     @Override
     public int hashCode() {
-        return rectanglesLeft.hashCode() * chosenVerts.hashCode() * vertsLeft.hashCode() * rectanglesCovered.hashCode();
+        return Long.hashCode(hash);
     }
-}
\ No newline at end of file
+}
@@ -42,10 +42,25 @@ public class Vert {
         return v.x == this.x && v.y == this.y;
     }
 
+    /**
+     * Packs a pair of coordinates into a single key. Distinct coordinates always
+     * give distinct keys
+     *
+     * @param x
+     * @param y
+     * @return the packed key (x << 32 | y)
+     */
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public long getKey() {
+        return key(x, y);
+    }
+
     @Override
     public int hashCode() {
-        String xy = x + String.valueOf(y);
-        return Integer.valueOf(xy);
+        return 31 * x + y;
     }
 
     @Override
@@ -0,0 +1,146 @@
+package rect_partition;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interning table for verts. Every distinct pair of coordinates is mapped to a
+ * single Vert and to a dense index, given by the order of insertion. The table
+ * is an open addressing hash table keyed by the packed coordinates, so a lookup
+ * never allocates and two different coordinates can never be merged.
+ */
+public class VertTable {
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private int[] slots;
+    private Vert[] verts;
+    private int size = 0;
+
+    public VertTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expected - the expected number of verts
+     */
+    public VertTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, INITIAL_CAPACITY / 2) * 2 - 1) << 1;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        verts = new Vert[capacity / 2];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the vert with the given coordinates, creating it if this is the first
+     * time they are seen
+     *
+     * @param x
+     * @param y
+     * @return the unique vert for the coordinates
+     */
+    public Vert intern(int x, int y) {
+        int slot = find(Vert.key(x, y));
+
+        if (slots[slot] != EMPTY)
+            return verts[slots[slot]];
+
+        Vert v = new Vert(x, y);
+        insert(slot, v);
+        return v;
+    }
+
+    /**
+     * Adds an existing vert to the table, unless there is already one with the same
+     * coordinates
+     *
+     * @param v - the vert to add
+     * @return the index of the vert with the coordinates of v
+     */
+    public int add(Vert v) {
+        int slot = find(v.getKey());
+
+        if (slots[slot] != EMPTY)
+            return slots[slot];
+
+        return insert(slot, v);
+    }
+
+    private int insert(int slot, Vert v) {
+        if (size == verts.length) {
+            grow();
+            slot = find(v.getKey());
+        }
+
+        keys[slot] = v.getKey();
+        slots[slot] = size;
+        verts[size] = v;
+        return size++;
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @return the index of the vert with the given coordinates, or -1 if there is
+     *         none
+     */
+    public int indexOf(int x, int y) {
+        return slots[find(Vert.key(x, y))];
+    }
+
+    public Vert get(int index) {
+        return verts[index];
+    }
+
+    /**
+     * @return the verts, ordered by their index
+     */
+    public List<Vert> values() {
+        return Arrays.asList(verts).subList(0, size);
+    }
+
+    /**
+     * Linear probing. Returns the slot holding the key, or the empty slot where it
+     * should be inserted
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (slots[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+
+        keys = new long[oldKeys.length * 2];
+        slots = new int[oldSlots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        verts = Arrays.copyOf(verts, verts.length * 2);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                slots[slot] = oldSlots[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -1,132 +1,230 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
-
-import rect_partition.Vert;
+import rect_partition.Instance;
+import rect_partition.RedundancyElimination;
+import rect_partition.State;
+import rect_partition.approaches.bounds.LowerBound;
 import rect_partition.utils.PartitionProblemException;
 
 /**
  * The modeling for this approach is:
- * 
+ *
  * Variables: Every vertex v from the vertex set V that can be picked or not,
  * therefore v € {true, false}
- * 
+ *
  * Constraints: For every rectangle r in the goal set R, V must contain at least
  * one v from r.
- * 
- * 
+ *
+ * Consistency is kept by unit propagation with watched verts (see
+ * ClausePropagator). On top of it, a depth first search looks for the smallest
+ * cover: it takes the rectangle left with the fewest free verts and tries each
+ * of them, the ones covering the most rectangles left first. A vert that was
+ * tried is made false for the next ones, which propagates. Branches that
+ * cannot beat the best cover found, by the lower bound of the lowerBound
+ * property, are pruned. Every cover found is stripped of its redundant verts
+ * before it is kept.
+ *
+ * The number of arcs checked is the number of times a clause was visited by
+ * the propagation.
  */
 public class AC3 extends CSPApproach {
 
-    Queue<Arc> agenda = new LinkedList<>();
-    Set<Arc> arcs = new HashSet<>();
+    private final Instance instance;
+    private final ClausePropagator propagator;
+    private final LowerBound lowerBound;
+
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    // The size of the best cover found
+    private volatile int bestSize = Integer.MAX_VALUE;
+    private long nodes = 0;
+    private boolean stopped = false;
+
+    public AC3(Instance instance) {
+        this.instance = instance;
+        this.propagator = new ClausePropagator(instance);
+        this.lowerBound = LowerBound.create(instance);
+
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+    }
 
-    Set<Integer> vertSet = new HashSet<>();
-    Map<Integer, Set<Integer>> rectangleSets = new HashMap<>();
+    @Override
+    public int solve() throws PartitionProblemException {
 
-    Map<Integer, Vert> vertMap = new HashMap<>();
+        if (!propagator.propagateUnits())
+            throw new PartitionProblemException("Unable to get arc consistency");
 
-    public AC3(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        int vertId = 1;
+        search();
 
-        // initialize the rectangle value sets
-        for (int i : rectanglesToCover) {
-            rectangleSets.put(i, new HashSet<>());
-        }
+        if (bestSize == Integer.MAX_VALUE)
+            throw new PartitionProblemException("Unable to find a solution for this instance");
 
-        // set values for the vert and rectangle sets
-        for (Vert v : verts) {
-            vertSet.add(vertId);
-            vertMap.put(vertId, v);
-            for (int r : v.getRectangles()) {
-                if (rectangleSets.containsKey(r)) {
-                    rectangleSets.get(r).add(vertId);
-                }
-            }
-            vertId++;
+        return bestSize;
+    }
+
+    /**
+     * Searches the covers below the current assignment
+     */
+    private void search() {
+        nodes++;
+
+        if (stopped || Thread.currentThread().isInterrupted()) {
+            stopped = true;
+            return;
         }
 
-        // generate the arcs
-        for (Set<Integer> rectangleSet : rectangleSets.values()) {
-            Arc arc = new Arc(vertSet, rectangleSet);
-            arcs.add(arc);
-            agenda.add(arc);
+        int chosen = propagator.getChosenCount();
+
+        if (propagator.getUnsatisfiedCount() == 0) {
+            record();
+            return;
         }
 
-    }
+        if (chosen + 1 >= bestSize)
+            return;
 
-    @Override
-    public int solve() throws PartitionProblemException {
+        int estimate = lowerBound.estimate(propagator::isSatisfied,
+                v -> propagator.getValue(v) == ClausePropagator.FREE);
+        if (chosen + estimate >= bestSize)
+            return;
 
-        while (!agenda.isEmpty()) {
+        int r = selectRectangle();
+        int mark = propagator.getTrailSize();
 
-            if (vertSet.isEmpty())
-                throw new PartitionProblemException("Unable to get arc consistency");
+        while (!stopped) {
+            int v = bestVert(r);
+            if (v < 0)
+                break;
 
-            Arc arc = agenda.remove();
+            int branch = propagator.getTrailSize();
+            propagator.assign(v, ClausePropagator.TRUE);
+            search();
+            propagator.undo(branch);
 
-            if (removeInconsistentValues(arc)) {
-                for (Arc neighbour : arcs) {
-                    if (agenda.contains(neighbour))
-                        continue;
+            // Every cover with this vert was searched
+            propagator.assign(v, ClausePropagator.FALSE);
+            if (!propagator.propagate())
+                break;
 
-                    // this checks if is a neighbour
-                    if (neighbour.left == arc.left) {
-                        agenda.add(neighbour);
-                    }
-                }
+            // The propagation may have covered the rectangle, or gone past the bound
+            if (propagator.isSatisfied(r)) {
+                search();
+                break;
             }
-
-            this.arcsChecked++;
+            if (propagator.getChosenCount() + 1 >= bestSize)
+                break;
         }
 
-        // The chosen verts set will be ~vertSet
-        for (int i : vertMap.keySet()) {
-            if (!vertSet.contains(i)) {
-                this.getChosenVerts().add(vertMap.get(i));
+        propagator.undo(mark);
+    }
+
+    /**
+     * @return the unsatisfied rectangle with the fewest free verts
+     */
+    private int selectRectangle() {
+        int best = -1;
+        int bestFree = Integer.MAX_VALUE;
+
+        for (int r = 0; r < instance.getNumRectangles(); r++) {
+            if (propagator.isSatisfied(r))
+                continue;
+
+            int free = 0;
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                if (propagator.getValue(rectVerts[k]) == ClausePropagator.FREE)
+                    free++;
+            }
+
+            if (free < bestFree) {
+                best = r;
+                bestFree = free;
             }
         }
 
-        return this.getChosenVerts().size();
+        return best;
     }
 
-    private boolean removeInconsistentValues(Arc arc) {
-        boolean removed = false;
+    /**
+     * @return the free vert of a rectangle that covers the most unsatisfied
+     *         rectangles, or -1 if it has none
+     */
+    private int bestVert(int r) {
+        int best = -1;
+        int bestGain = -1;
+
+        for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+            int v = rectVerts[k];
+            if (propagator.getValue(v) != ClausePropagator.FREE)
+                continue;
+
+            int gain = 0;
+            for (int j = vertStart[v]; j < vertStart[v + 1]; j++) {
+                if (!propagator.isSatisfied(vertRects[j]))
+                    gain++;
+            }
 
-        for (int x : arc.right) {
-            if (!arc.constraint()) {
-                arc.left.remove(x);
-                removed = true;
+            if (gain > bestGain) {
+                best = v;
+                bestGain = gain;
             }
         }
 
-        return removed;
+        return best;
     }
 
-    private class Arc {
+    /**
+     * Keeps the cover made of the true verts, without its redundant verts, if it
+     * is the best so far
+     */
+    private void record() {
+        State s = new State(instance);
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (propagator.getValue(v) == ClausePropagator.TRUE)
+                s.addVert(v);
+        }
 
-        Set<Integer> left;
-        Set<Integer> right;
+        s = RedundancyElimination.prune(s);
+        if (s.getChosenCount() >= bestSize)
+            return;
 
-        public Arc(Set<Integer> left, Set<Integer> right) {
-            this.left = left;
-            this.right = right;
-        }
+        this.chosenVerts = s.getChosenVerts();
+        bestSize = s.getChosenCount();
+    }
 
-        public boolean constraint() {
+    /**
+     * The clauses visited by the propagation so far
+     */
+    @Override
+    public int getArcsChecked() {
+        return (int) Math.min(Integer.MAX_VALUE, propagator.getClausesVisited());
+    }
 
-            // In this specific implementation, we're only checking if the left set is
-            // missing any element from the right set. If it is, it means that element
-            // was picked and the arc is consistent
-            return !left.containsAll(right);
-        }
+    /**
+     * @return the number of nodes of the search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return true if the search was interrupted before it proved the best cover
+     *         optimal
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
 
+    /**
+     * @return the size of the best cover found so far
+     */
+    public int getBest() {
+        return bestSize;
     }
 
-}
\ No newline at end of file
+}
@@ -1,13 +1,13 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
+import rect_partition.approaches.bounds.LowerBound;
 import rect_partition.utils.PartitionProblemException;
 
 /**
@@ -18,26 +18,47 @@ import rect_partition.utils.PartitionProblemException;
  */
 public class AStar extends Approach {
 
-    int numberOfRectangles;
     int bestSolutionSoFar = Integer.MAX_VALUE;
     boolean foundSolution = false;
 
-    public AStar(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        super(verts, rectanglesToCover);
-        numberOfRectangles = rectanglesToCover.size();
+    private final LowerBound lowerBound;
+
+    /**
+     * A state in the heap, with its score computed once when it is offered
+     */
+    private static class Node {
+        final State state;
+        final int score;
+
+        Node(State state, int score) {
+            this.state = state;
+            this.score = score;
+        }
+    }
+
+    public AStar(Instance instance) {
+        super(instance);
+        lowerBound = LowerBound.create(instance);
     }
 
     @Override
-    public int solve() throws PartitionProblemException {
+    protected int findSolution() throws PartitionProblemException {
 
         Set<State> visited = new HashSet<>();
 
         // This is a MinHeap that compares the costs of the states at insertion
-        PriorityQueue<State> heap = new PriorityQueue<>((s1, s2) -> stateFullCost(s1) - stateFullCost(s2));
-        heap.offer(currentState);
+        PriorityQueue<Node> heap = new PriorityQueue<>((n1, n2) -> n1.score - n2.score);
+        heap.offer(new Node(currentState, stateFullCost(currentState)));
+
+        // No solution is smaller than the heuristic of the root
+        int rootBound = heuristic(currentState);
 
         while (!heap.isEmpty()) {
-            State s = heap.poll();
+            if (isCancelled())
+                return stopWithIncumbent();
+
+            Node node = heap.poll();
+            State s = node.state;
 
             if (s.isFinal()) {
                 foundSolution = true;
@@ -46,21 +67,26 @@ public class AStar extends Approach {
                 if (solution < bestSolutionSoFar) {
                     bestSolutionSoFar = solution;
                     currentState = s;
+                    improve(s);
 
-                    // It is possible to prove that the solution will not be better than
-                    // Math.ceil(numRectanglesToCover / 3); therefore, we will use this as a breaker
-                    if (solution <= Math.ceil((double) numberOfRectangles / 3d)) {
+                    // A solution as small as the lower bound is optimal, so we use it as a breaker
+                    if (solution <= rootBound) {
                         return solution;
                     }
                 }
             }
 
-            // Check if the cost of this state is equal or worse than the best solution. If
-            // it is, we don't need to expand it.
-            if (stateCost(s) >= bestSolutionSoFar) {
+            // Choosing more verts never improves a final state
+            if (s.isFinal()) {
                 continue;
             }
 
+            // The heap is ordered by the cost plus the heuristic, so if this state cannot
+            // beat the best solution no other state left can
+            if (node.score >= Math.min(bestSolutionSoFar, getUpperBound())) {
+                break;
+            }
+
             List<State> neighbours = s.expand();
 
             this.statesExpanded += neighbours.size();
@@ -72,7 +98,11 @@ public class AStar extends Approach {
                 // as big as how many vertexes have been chosen. So, we just add the child
                 // states to the heap and keep doing the same thing until we find a solution
                 if (!visited.contains(neighbour)) {
-                    heap.offer(neighbour);
+                    int score = stateFullCost(neighbour);
+
+                    // A state that cannot be completed has an infinite score
+                    if (score < LowerBound.INFEASIBLE)
+                        heap.offer(new Node(neighbour, score));
                 }
             }
         }
@@ -83,6 +113,11 @@ public class AStar extends Approach {
         throw new PartitionProblemException("Unable to find a solution for this instance");
     }
 
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
     /**
      * The state score is the sum between the cost from the root state to the
      * current one plus the value of the heuristic. Since as we progress through the
@@ -97,17 +132,17 @@ public class AStar extends Approach {
     }
 
     private int stateCost(State state) {
-        return state.getChosenVerts().size();
+        return state.getChosenCount();
     }
 
     /**
-     * h(s) <= cost(s)
+     * h(s) <= cost(s). The lower bound chosen with the lowerBound property
      * 
      * @param state
      * @return
      */
     private int heuristic(State state) {
-        return (int) Math.ceil((double) state.getRectanglesLeft().size() / 3d);
+        return lowerBound.estimate(state);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package rect_partition.approaches;
+
+import java.util.SplittableRandom;
+
+import rect_partition.State;
+
+/**
+ * A Markov chain over sets of verts that need not cover every rectangle. The
+ * cost of a set is its number of verts plus UNCOVERED_PENALTY for each
+ * rectangle it leaves uncovered, so a cover is always cheaper than the sets
+ * around it that miss rectangles.
+ *
+ * Each step tries one move, chosen at random: adding a vert of a rectangle
+ * left uncovered, removing a chosen vert, or swapping a chosen vert for a vert
+ * that shares a rectangle with it. The change in cost is evaluated in place
+ * from the cover counts of the rectangles, and the move is accepted with the
+ * usual Metropolis probability at the temperature of the step.
+ */
+class AnnealingChain {
+
+    // The cost of a rectangle left uncovered, in verts
+    static final int UNCOVERED_PENALTY = 2;
+
+    private static final int ADD = 0;
+    private static final int REMOVE = 1;
+
+    private final IncrementalCover cover;
+    private final SplittableRandom random;
+
+    private long moves = 0;
+
+    // The smallest cover the chain went through
+    private State best;
+
+    /**
+     * @param start  - the cover the chain starts from
+     * @param random - the source of the moves, used by this chain only
+     */
+    AnnealingChain(State start, SplittableRandom random) {
+        this.cover = new IncrementalCover(start);
+        this.random = random;
+        this.best = start;
+    }
+
+    /**
+     * Tries a move
+     *
+     * @param temp - the temperature
+     * @return true if the move led to a cover smaller than the best one so far
+     */
+    boolean step(double temp) {
+        moves++;
+
+        int move = random.nextInt(3);
+        int out = -1;
+        int in = -1;
+        int delta;
+
+        if (move == ADD) {
+            int r = cover.randomUncovered(random);
+            in = r >= 0 ? cover.randomVert(r, random) : cover.randomUnchosen(random);
+            if (in < 0)
+                return false;
+
+            delta = 1 + UNCOVERED_PENALTY * cover.addDelta(in);
+        } else {
+            out = cover.randomChosen(random);
+            if (out < 0)
+                return false;
+
+            if (move == REMOVE) {
+                delta = -1 + UNCOVERED_PENALTY * cover.removeDelta(out);
+            } else {
+                in = cover.randomNeighbour(out, random);
+                if (in < 0 || cover.isChosen(in))
+                    return false;
+
+                delta = UNCOVERED_PENALTY * cover.swapDelta(out, in);
+            }
+        }
+
+        // Check if we accept the move with the acceptance test
+        if (delta > 0 && Math.exp(-delta / temp) <= random.nextDouble())
+            return false;
+
+        if (out < 0)
+            cover.add(in);
+        else if (in < 0)
+            cover.remove(out);
+        else
+            cover.swap(out, in);
+
+        // Check if is the best and update
+        if (cover.getUncoveredCount() == 0 && cover.getChosenCount() < best.getChosenCount()) {
+            best = cover.toState();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the cost of the current set of verts
+     */
+    int getCost() {
+        return cover.getChosenCount() + UNCOVERED_PENALTY * cover.getUncoveredCount();
+    }
+
+    State getBest() {
+        return best;
+    }
+
+    /**
+     * @return the number of moves tried so far
+     */
+    long getMoves() {
+        return moves;
+    }
+
+}
@@ -1,8 +1,9 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import rect_partition.Instance;
 import rect_partition.State;
 import rect_partition.Vert;
 import rect_partition.utils.PartitionProblemException;
@@ -17,24 +18,47 @@ public abstract class Approach {
     protected State currentState;
     public static int timeout = 120;
 
+    // The tree searches choose verts in increasing index order, so that each set
+    // of verts is only built once
+    public static boolean canonicalBranching = true;
+
+    // The best solution size known by any approach working on the same set, if
+    // this approach is part of a portfolio
+    protected AtomicInteger upperBound;
+
+    private volatile long startingTime = System.currentTimeMillis();
+    private volatile boolean cancelled = false;
+    private volatile Incumbent incumbent;
+    private IncumbentListener listener;
+
     /**
      * Public constructor
      * 
-     * @param totalRectangles   in the problem set
-     * @param verts             in the problem set
-     * @param rectanglesToCover
+     * @param instance - the indexed problem set
      */
-    public Approach(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        currentState = new State(verts, rectanglesToCover);
+    public Approach(Instance instance) {
+        currentState = new State(instance);
         statesExpanded = 1;
     }
 
     /**
-     * Solves the problem according the the approach chosen
+     * Solves the problem according the the approach chosen. The time of every
+     * solution found is counted from here, not from the construction, which may
+     * happen long before, while the set waits for a thread
+     * 
+     * @return the number of verts picked
+     */
+    public final int solve() throws PartitionProblemException {
+        startingTime = System.currentTimeMillis();
+        return findSolution();
+    }
+
+    /**
+     * The search of the approach, run by solve()
      * 
      * @return the number of verts picked
      */
-    public abstract int solve() throws PartitionProblemException;
+    protected abstract int findSolution() throws PartitionProblemException;
 
     public int getStatesExpanded() {
         return statesExpanded;
@@ -44,4 +68,139 @@ public abstract class Approach {
         return currentState.getChosenVerts();
     }
 
+    /**
+     * @return the best solution found so far, or null if there is none yet. It is
+     *         safe to call while the approach is running
+     */
+    public Incumbent getIncumbent() {
+        return incumbent;
+    }
+
+    public void setIncumbentListener(IncumbentListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Asks the approach to stop. It returns its best solution so far the next time
+     * it checks, which every approach does once per iteration of its main loop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return the milliseconds since the approach started
+     */
+    protected long elapsedMillis() {
+        return System.currentTimeMillis() - startingTime;
+    }
+
+    /**
+     * @return true if the approach was cancelled or its thread was interrupted
+     */
+    protected boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Records a state as the best solution if it is final and better than the
+     * current one, and notifies the listener and the other approaches sharing the
+     * bound. It may be called from several threads of the approach
+     *
+     * @param state - the state to record. It is copied, so it may be changed later
+     */
+    protected synchronized void improve(State state) {
+        if (!state.isFinal())
+            return;
+
+        Incumbent best = incumbent;
+        if (best != null && best.getSize() <= state.getChosenCount())
+            return;
+
+        best = new Incumbent(new State(state), elapsedMillis(), getClass().getSimpleName());
+        incumbent = best;
+
+        offerSolution(best.getSize());
+
+        if (listener != null)
+            listener.improved(best);
+    }
+
+    /**
+     * Records a solution found by another approach as the best one, keeping the
+     * name of the approach that found it
+     *
+     * @param best - the solution to record
+     */
+    synchronized void adopt(Incumbent best) {
+        incumbent = best;
+
+        offerSolution(best.getSize());
+
+        if (listener != null)
+            listener.improved(best);
+    }
+
+    /**
+     * Ends a cancelled search with the best solution found so far
+     *
+     * @return the number of verts of the best solution
+     * @throws PartitionProblemException if no solution was found before the
+     *                                   cancellation
+     */
+    protected int stopWithIncumbent() throws PartitionProblemException {
+        Incumbent best = incumbent;
+
+        if (best == null)
+            throw new PartitionProblemException("The search was stopped before finding a solution");
+
+        currentState = best.getState();
+        return best.getSize();
+    }
+
+    /**
+     * Shares a best known solution size with other approaches solving the same
+     * set. Exact approaches use it to prune.
+     *
+     * @param upperBound - the shared bound
+     */
+    public void setUpperBound(AtomicInteger upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * @return the best solution size known by any approach, or Integer.MAX_VALUE
+     */
+    protected int getUpperBound() {
+        return upperBound == null ? Integer.MAX_VALUE : upperBound.get();
+    }
+
+    /**
+     * Publishes the size of a solution found, lowering the shared bound if it is
+     * better
+     *
+     * @param solution - the number of verts of a final state
+     */
+    protected void offerSolution(int solution) {
+        if (upperBound != null)
+            upperBound.accumulateAndGet(solution, Math::min);
+    }
+
+    /**
+     * @param s - a state of a tree search
+     * @return the verts to branch on in the state: its canonical children if
+     *         canonicalBranching is on, otherwise every vert left
+     */
+    protected static int[] branchingVerts(State s) {
+        return canonicalBranching ? s.getCanonicalChildren() : s.getVertsLeftIndexes();
+    }
+
+    /**
+     * @return true if returning from solve() proves that no solution smaller than
+     *         the best one known exists
+     */
+    public boolean isExact() {
+        return false;
+    }
+
 }
\ No newline at end of file
@@ -1,96 +1,165 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Set;
-
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
+import rect_partition.approaches.bounds.LowerBound;
 import rect_partition.utils.PartitionProblemException;
 
 /**
- * This approach relies on choosing the next state to expand based on its cost
- * so far. Also, it creates a "bound" that prevents the search to go further
- * than the already found best solution
+ * This approach searches depth first, always branching on the rectangle left
+ * that the fewest verts can still cover: one child per vert that covers it. It
+ * keeps a "bound", the best solution found so far, and prunes every branch
+ * whose verts chosen plus a lower bound on the verts still needed reach it.
+ *
+ * A single working state is changed in place and undone when the search
+ * backtracks, so the memory used only grows with the depth of the search.
  */
 public class BranchAndBound extends Approach {
 
-    int numberOfRectangles;
+    // How many nodes are expanded between checks for a cancellation
+    static final int CHECK_INTERVAL = 1 << 12;
+
+    final Instance instance;
+
     int bound = Integer.MAX_VALUE;
-    boolean foundSolution = false;
 
-    public BranchAndBound(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        super(verts, rectanglesToCover);
-        numberOfRectangles = rectanglesToCover.size();
+    // No solution is smaller than this
+    int rootBound;
+
+    final LowerBound lowerBound;
+
+    public BranchAndBound(Instance instance) {
+        super(instance);
+        this.instance = instance;
+        this.lowerBound = LowerBound.create(instance);
     }
 
     @Override
-    public int solve() throws PartitionProblemException {
+    protected int findSolution() throws PartitionProblemException {
+        BranchingState search = seed();
+        int r = search.selectRectangle();
+
+        if (bound > rootBound && r >= 0 && search.getCandidates(r) > 0)
+            search(search, new int[0], r);
+
+        if (isCancelled())
+            return stopWithIncumbent();
+
+        Incumbent best = getIncumbent();
+        currentState = best.getState();
+
+        return best.getSize();
+    }
 
-        Set<State> visited = new HashSet<>();
+    /**
+     * Starts with the greedy solution as the bound, so that pruning starts at once
+     *
+     * @return the working state of the root
+     */
+    BranchingState seed() throws PartitionProblemException {
+        BranchingState search = new BranchingState(instance);
 
-        // This is a MinHeap that compares the costs of the states at insertion
-        PriorityQueue<State> heap = new PriorityQueue<>((s1, s2) -> stateCost(s1) - stateCost(s2));
-        heap.offer(currentState);
+        GreedyMostCoverageFirst greedy = new GreedyMostCoverageFirst(instance);
+        greedy.solve();
+        this.statesExpanded += greedy.getStatesExpanded();
+        currentState = greedy.currentState;
+        record(currentState);
 
-        while (!heap.isEmpty()) {
-            State s = heap.poll();
+        rootBound = lowerBound.estimate(search.covered, search.available);
 
-            if (s.isFinal()) {
-                foundSolution = true;
+        return search;
+    }
 
-                int solution = s.getSolution();
-                if (solution < bound) {
-                    bound = solution;
-                    currentState = s;
+    /**
+     * Searches every branch below a working state, until it is exhausted or the
+     * approach is cancelled
+     *
+     * @param search - the working state
+     * @param prefix - the verts chosen in the working state before the search
+     * @param r      - the rectangle to branch on first
+     */
+    void search(BranchingState search, int[] prefix, int r) {
+        int expanded = 0;
+        long nodes = 0;
+
+        int depth = 0;
+        search.enter(0, r);
 
-                    // It is possible to prove that the solution will not be better than
-                    // Math.ceil(numRectanglesToCover / 3); therefore, we will use this as a breaker
-                    if (solution <= Math.ceil((double) numberOfRectangles / 3d)) {
-                        return solution;
-                    }
-                }
+        while (depth >= 0) {
+            if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+                countExpanded(expanded);
+                expanded = 0;
+
+                if (isCancelled())
+                    break;
             }
 
-            // Check if the cost of this state is equal or worse than the best solution. If
-            // it is, we don't need to expand it.
-            if (stateCost(s) >= bound) {
+            search.retract(depth);
+
+            // Every branch below this depth chooses this many verts at least. In a
+            // portfolio, the best solution may have been found by another approach
+            int verts = prefix.length + depth + 1;
+            int limit = Math.min(bound, getUpperBound());
+
+            // A solution as small as the lower bound of the root is optimal
+            if (limit <= rootBound)
+                break;
+
+            int v = verts < limit ? search.nextVert(depth) : -1;
+
+            if (v < 0) {
+                search.leave(depth);
+                depth--;
                 continue;
             }
 
-            List<State> neighbours = s.expand();
+            search.choose(depth, v);
+            expanded++;
 
-            this.statesExpanded += neighbours.size();
-
-            for (State neighbour : neighbours) {
-                // In this A* approach, we're not updating cost values in the heap if we find
-                // the same state again. That is because in this specific problem if we find
-                // the same instance later it will always have the same cost since the cost is
-                // as big as how many vertexes have been chosen. So, we just add the child
-                // states to the heap and keep doing the same thing until we find a solution
-                if (!visited.contains(neighbour)) {
-                    heap.offer(neighbour);
-                }
+            if (search.getRectanglesLeft() == 0) {
+                State s = search.toState(depth);
+                for (int u : prefix)
+                    s.addVert(u);
+                record(s);
+                continue;
             }
+
+            // Only when the cheap bound does not prune is the stronger, slower lower
+            // bound computed
+            if (verts + search.quickBound() >= limit)
+                continue;
+
+            if (verts + lowerBound.estimate(search.covered, search.available) >= limit)
+                continue;
+
+            r = search.selectRectangle();
+
+            // A rectangle left that no vert can cover anymore is a dead end
+            if (search.getCandidates(r) == 0)
+                continue;
+
+            depth++;
+            search.enter(depth, r);
         }
 
-        if (foundSolution)
-            return bound;
+        countExpanded(expanded);
+    }
 
-        throw new PartitionProblemException("Unable to find a solution for this instance");
+    void countExpanded(int expanded) {
+        this.statesExpanded += expanded;
     }
 
     /**
-     * The cost of the state is the number of edges since the root. That is the same
-     * as the number of chosen verts, since we choose one vertex per expansion
-     * 
-     * @param state to calculate the cost
-     * @return the cost of the state
+     * Records a solution as the new bound
      */
-    private int stateCost(State state) {
-        return state.getChosenVerts().size();
+    void record(State s) {
+        bound = Math.min(bound, s.getChosenCount());
+        improve(s);
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
     }
 
-}
\ No newline at end of file
+}
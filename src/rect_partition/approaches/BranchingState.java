@@ -0,0 +1,251 @@
+package rect_partition.approaches;
+
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+import rect_partition.State;
+
+/**
+ * The working state of the depth first searches that branch on rectangles. It
+ * is changed in place: choosing a vert increments the cover count of its
+ * rectangles, and the verts already tried for a rectangle are excluded from the
+ * branches after them. Both changes are undone when the search backtracks, so
+ * the memory used only grows with the depth of the search.
+ *
+ * It also keeps the search stack: the verts that cover the rectangle branched
+ * on at each depth, in the order they are tried, the next one to try, the vert
+ * chosen and the size of the trail when the depth was entered.
+ */
+class BranchingState {
+
+    private final Instance instance;
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    // Number of chosen verts covering each rectangle
+    private final int[] coverCount;
+    // Number of verts that are neither chosen nor excluded covering each rectangle
+    private final int[] candidates;
+    // Number of rectangles left each vert covers, used to order the branches
+    private final int[] gain;
+    private final boolean[] excluded;
+    private int rectanglesLeft;
+    private int maxVertDegree = 1;
+
+    // The verts excluded so far, in order, so they can be included back
+    private final int[] trail;
+    private int trailSize = 0;
+
+    private final int[] choice;
+    private final int[] next;
+    private final int[] trailMark;
+    private final int[] order;
+    private final int[] orderStart;
+
+    // For the lower bounds
+    final IntPredicate covered;
+    final IntPredicate available;
+
+    BranchingState(Instance instance) {
+        this.instance = instance;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+
+        int numVerts = instance.getNumVerts();
+        int numRectangles = instance.getNumRectangles();
+
+        coverCount = new int[numRectangles];
+        candidates = new int[numRectangles];
+        gain = new int[numVerts];
+        excluded = new boolean[numVerts];
+        trail = new int[numVerts];
+        rectanglesLeft = numRectangles;
+
+        for (int v = 0; v < numVerts; v++) {
+            gain[v] = instance.getVertDegree(v);
+            maxVertDegree = Math.max(maxVertDegree, gain[v]);
+        }
+        for (int r = 0; r < numRectangles; r++)
+            candidates[r] = instance.getRectangleDegree(r);
+
+        choice = new int[numRectangles + 1];
+        next = new int[numRectangles + 1];
+        trailMark = new int[numRectangles + 1];
+        order = new int[rectVerts.length];
+        orderStart = new int[numRectangles + 2];
+
+        covered = r -> coverCount[r] > 0;
+        available = v -> !excluded[v];
+    }
+
+    int getRectanglesLeft() {
+        return rectanglesLeft;
+    }
+
+    int getCandidates(int r) {
+        return candidates[r];
+    }
+
+    /**
+     * @return a lower bound on the verts still needed that is cheap to compute: no
+     *         vert covers more than maxVertDegree rectangles
+     */
+    int quickBound() {
+        return (rectanglesLeft + maxVertDegree - 1) / maxVertDegree;
+    }
+
+    /**
+     * Pushes a depth that branches on the given rectangle. Its verts are tried in
+     * decreasing order of the rectangles left they cover
+     */
+    void enter(int depth, int r) {
+        choice[depth] = -1;
+        trailMark[depth] = trailSize;
+
+        int start = orderStart[depth];
+        int end = start;
+
+        for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+            int v = rectVerts[k];
+            if (excluded[v])
+                continue;
+
+            // Insertion sort, rectangles have few verts
+            int i = end++;
+            while (i > start && gain[order[i - 1]] < gain[v]) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = v;
+        }
+
+        next[depth] = start;
+        orderStart[depth + 1] = end;
+    }
+
+    /**
+     * Undoes the vert chosen last at a depth, if any, and excludes it from the
+     * branches after it
+     */
+    void retract(int depth) {
+        if (choice[depth] >= 0) {
+            unchoose(choice[depth]);
+            exclude(choice[depth]);
+            choice[depth] = -1;
+        }
+    }
+
+    /**
+     * @return the next vert to try at a depth, or -1 if there are no more
+     */
+    int nextVert(int depth) {
+        while (next[depth] < orderStart[depth + 1]) {
+            int v = order[next[depth]++];
+            if (!excluded[v])
+                return v;
+        }
+        return -1;
+    }
+
+    /**
+     * Chooses a vert as the branch of a depth
+     */
+    void choose(int depth, int v) {
+        choose(v);
+        choice[depth] = v;
+    }
+
+    /**
+     * Pops a depth, including back the verts excluded in it
+     */
+    void leave(int depth) {
+        include(trailMark[depth]);
+    }
+
+    /**
+     * @return the rectangle left with the fewest verts that can cover it, or -1 if
+     *         every rectangle is covered
+     */
+    int selectRectangle() {
+        int best = -1;
+
+        for (int r = 0; r < coverCount.length; r++) {
+            if (coverCount[r] == 0 && (best < 0 || candidates[r] < candidates[best])) {
+                best = r;
+                if (candidates[r] <= 1)
+                    break;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @return the state with the verts chosen down to a depth
+     */
+    State toState(int depth) {
+        State s = new State(instance);
+        for (int d = 0; d <= depth; d++)
+            s.addVert(choice[d]);
+        return s;
+    }
+
+    /**
+     * Chooses a vert outside of the search stack, before the search starts
+     */
+    void choose(int v) {
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            int r = vertRects[k];
+            candidates[r]--;
+
+            if (coverCount[r]++ == 0) {
+                rectanglesLeft--;
+                for (int j = rectStart[r]; j < rectStart[r + 1]; j++)
+                    gain[rectVerts[j]]--;
+            }
+        }
+    }
+
+    private void unchoose(int v) {
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            int r = vertRects[k];
+            candidates[r]++;
+
+            if (--coverCount[r] == 0) {
+                rectanglesLeft++;
+                for (int j = rectStart[r]; j < rectStart[r + 1]; j++)
+                    gain[rectVerts[j]]++;
+            }
+        }
+    }
+
+    /**
+     * Excludes a vert from every branch. Outside of the search stack, it is never
+     * included back
+     */
+    void exclude(int v) {
+        excluded[v] = true;
+        trail[trailSize++] = v;
+
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+            candidates[vertRects[k]]--;
+    }
+
+    /**
+     * Includes back the verts excluded after the trail had the given size
+     */
+    private void include(int mark) {
+        while (trailSize > mark) {
+            int v = trail[--trailSize];
+            excluded[v] = false;
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                candidates[vertRects[k]]++;
+        }
+    }
+
+}
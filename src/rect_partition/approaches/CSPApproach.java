@@ -12,7 +12,9 @@ import rect_partition.utils.PartitionProblemException;
  */
 public abstract class CSPApproach {
 
-    protected Set<Vert> chosenVerts = new HashSet<>();
+    // Replaced as a whole when a better solution is found, so it can be read from
+    // another thread while the approach runs
+    protected volatile Set<Vert> chosenVerts = new HashSet<>();
     protected int arcsChecked = 0;
 
     /**
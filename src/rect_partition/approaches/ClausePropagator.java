@@ -0,0 +1,265 @@
+package rect_partition.approaches;
+
+import java.util.Arrays;
+
+import rect_partition.Instance;
+
+/**
+ * Unit propagation over the constraints of the set cover CSP: every vert is a
+ * variable that is true when it is chosen, and every rectangle is a clause that
+ * holds when one of its verts is true. On such a clause, arc consistency is
+ * exactly unit propagation: once all of its verts but one are false, the last
+ * one must be true.
+ *
+ * Each clause watches two of its verts that are not false, and each vert keeps
+ * the list of the clauses watching it. When a vert becomes false, only the
+ * clauses watching it are visited: each one moves its watch to another vert
+ * that is not false, or else sets the other watched vert true, or fails if that
+ * one is false too. The watches need not be restored when assignments are
+ * undone, since undoing only turns false verts back into free ones.
+ *
+ * The verts made false wait in a queue, with a bitset telling which ones are in
+ * it, until their clauses are visited.
+ */
+class ClausePropagator {
+
+    static final byte FREE = 0;
+    static final byte TRUE = 1;
+    static final byte FALSE = 2;
+
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    private final byte[] value;
+
+    // The two verts watched by each clause, as positions in its row of rectVerts
+    private final int[] watch1;
+    private final int[] watch2;
+
+    // The clauses watching each vert
+    private final int[][] watchers;
+    private final int[] watcherCount;
+
+    // Number of true verts in each clause, and number of clauses with none
+    private final int[] trueCount;
+    private int unsatisfied;
+    private int chosenCount = 0;
+
+    // The verts assigned, in order
+    private final int[] trail;
+    private int trailSize = 0;
+
+    // The verts made false whose clauses are still to be visited
+    private final int[] queue;
+    private int queueHead = 0;
+    private int queueTail = 0;
+    private final long[] queued;
+
+    private long clausesVisited = 0;
+
+    ClausePropagator(Instance instance) {
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+
+        int numVerts = instance.getNumVerts();
+        int numRectangles = instance.getNumRectangles();
+
+        this.value = new byte[numVerts];
+        this.watch1 = new int[numRectangles];
+        this.watch2 = new int[numRectangles];
+        this.watchers = new int[numVerts][];
+        this.watcherCount = new int[numVerts];
+        this.trueCount = new int[numRectangles];
+        this.unsatisfied = numRectangles;
+        this.trail = new int[numVerts];
+        // One slot more than the verts, so a full queue is not taken for an empty one
+        this.queue = new int[numVerts + 1];
+        this.queued = new long[(numVerts + 63) >>> 6];
+
+        for (int v = 0; v < numVerts; v++)
+            watchers[v] = new int[4];
+
+        for (int r = 0; r < numRectangles; r++) {
+            watch1[r] = rectStart[r];
+            watch2[r] = rectStart[r] + 1;
+
+            if (rectStart[r + 1] - rectStart[r] >= 2) {
+                addWatcher(rectVerts[watch1[r]], r);
+                addWatcher(rectVerts[watch2[r]], r);
+            }
+        }
+    }
+
+    /**
+     * Makes the clauses with a single vert hold, and checks that none is empty
+     *
+     * @return false if some clause cannot hold
+     */
+    boolean propagateUnits() {
+        for (int r = 0; r < watch1.length; r++) {
+            int size = rectStart[r + 1] - rectStart[r];
+
+            if (size == 0)
+                return false;
+            if (size == 1 && trueCount[r] == 0 && !assign(rectVerts[rectStart[r]], TRUE))
+                return false;
+        }
+        return propagate();
+    }
+
+    /**
+     * Assigns a free vert, without propagating yet
+     *
+     * @return false if the vert was already assigned the other value
+     */
+    boolean assign(int v, byte b) {
+        if (value[v] != FREE)
+            return value[v] == b;
+
+        value[v] = b;
+        trail[trailSize++] = v;
+
+        if (b == TRUE) {
+            chosenCount++;
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                if (trueCount[vertRects[k]]++ == 0)
+                    unsatisfied--;
+            }
+        } else
+            enqueue(v);
+
+        return true;
+    }
+
+    /**
+     * Visits the clauses watching each vert made false, until the queue is empty
+     *
+     * @return false if some clause can no longer hold
+     */
+    boolean propagate() {
+        while (queueHead != queueTail) {
+            int v = dequeue();
+
+            int[] list = watchers[v];
+            int i = 0;
+
+            while (i < watcherCount[v]) {
+                int r = list[i];
+                clausesVisited++;
+
+                if (trueCount[r] > 0) {
+                    i++;
+                    continue;
+                }
+
+                // Keep the false vert in the first watch
+                if (rectVerts[watch1[r]] != v) {
+                    int w = watch1[r];
+                    watch1[r] = watch2[r];
+                    watch2[r] = w;
+                }
+
+                int other = rectVerts[watch2[r]];
+                int replacement = -1;
+                for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                    if (k != watch2[r] && value[rectVerts[k]] != FALSE) {
+                        replacement = k;
+                        break;
+                    }
+                }
+
+                if (replacement >= 0) {
+                    watch1[r] = replacement;
+                    addWatcher(rectVerts[replacement], r);
+                    list[i] = list[--watcherCount[v]];
+                    continue;
+                }
+
+                // Every vert but the other watched one is false
+                if (value[other] == FALSE || !assign(other, TRUE)) {
+                    clearQueue();
+                    return false;
+                }
+                i++;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Undoes the assignments made after the trail had a size
+     */
+    void undo(int mark) {
+        while (trailSize > mark) {
+            int v = trail[--trailSize];
+
+            if (value[v] == TRUE) {
+                chosenCount--;
+                for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                    if (--trueCount[vertRects[k]] == 0)
+                        unsatisfied++;
+                }
+            }
+
+            value[v] = FREE;
+        }
+    }
+
+    byte getValue(int v) {
+        return value[v];
+    }
+
+    boolean isSatisfied(int r) {
+        return trueCount[r] > 0;
+    }
+
+    int getUnsatisfiedCount() {
+        return unsatisfied;
+    }
+
+    int getChosenCount() {
+        return chosenCount;
+    }
+
+    int getTrailSize() {
+        return trailSize;
+    }
+
+    long getClausesVisited() {
+        return clausesVisited;
+    }
+
+    private void addWatcher(int v, int r) {
+        if (watcherCount[v] == watchers[v].length)
+            watchers[v] = Arrays.copyOf(watchers[v], 2 * watcherCount[v]);
+        watchers[v][watcherCount[v]++] = r;
+    }
+
+    private void enqueue(int v) {
+        long bit = 1L << v;
+        if ((queued[v >>> 6] & bit) != 0)
+            return;
+
+        queued[v >>> 6] |= bit;
+        queue[queueTail] = v;
+        queueTail = (queueTail + 1) % queue.length;
+    }
+
+    private int dequeue() {
+        int v = queue[queueHead];
+        queueHead = (queueHead + 1) % queue.length;
+        queued[v >>> 6] &= ~(1L << v);
+        return v;
+    }
+
+    private void clearQueue() {
+        while (queueHead != queueTail)
+            dequeue();
+    }
+
+}
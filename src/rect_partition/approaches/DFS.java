@@ -1,14 +1,12 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 import java.util.Stack;
 
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
+import rect_partition.approaches.bounds.LowerBound;
 import rect_partition.utils.PartitionProblemException;
+import rect_partition.utils.TranspositionTable;
 
 /**
  * This is a simple approach where we keep expanding the states until we find a
@@ -16,54 +14,72 @@ import rect_partition.utils.PartitionProblemException;
  */
 public class DFS extends Approach {
 
-    // We save the visited states to prevent cycles in the search
-    Set<State> visited = new HashSet<>();
+    // We save the hashes of the visited states to prevent cycles in the search.
+    // Canonical children are never repeated, so it is only built without them
+    TranspositionTable visited;
 
-    int numRectanglesToCover;
+    // No solution is smaller than this
+    int lowerBound;
 
     boolean firstSolution;
 
-    public DFS(Collection<Vert> verts, Collection<Integer> rectanglesToCover, boolean firstSolution) {
-        super(verts, rectanglesToCover);
-        this.numRectanglesToCover = rectanglesToCover.size();
+    public DFS(Instance instance, boolean firstSolution) {
+        super(instance);
+        lowerBound = LowerBound.create(instance).estimate(currentState);
         this.firstSolution = firstSolution;
     }
 
     @Override
-    public int solve() throws PartitionProblemException {
+    protected int findSolution() throws PartitionProblemException {
+        Instance instance = currentState.getInstance();
+
+        if (!canonicalBranching && visited == null)
+            visited = new TranspositionTable();
+
         Stack<State> stack = new Stack<>();
         stack.add(currentState);
 
         while (!stack.isEmpty()) {
+            if (isCancelled())
+                return stopWithIncumbent();
+
             State s = stack.pop();
-            if (!visited.contains(s)) {
-                visited.add(s);
+            int depth = s.getChosenCount() + 1;
 
-                List<State> neighbours = s.expand();
-                this.statesExpanded += neighbours.size();
+            for (int v : branchingVerts(s)) {
+                // Canonical children are all different. Otherwise, the hash of a child is
+                // known before building it, so the states seen before are skipped without
+                // being built
+                if (!canonicalBranching && !visited.visit(s.getHash() ^ instance.getVertKey(v), depth))
+                    continue;
 
-                for (State n : neighbours) {
-                    if (n.isFinal()) {
-                        if (firstSolution) {
-                            this.currentState = n;
-                            return currentState.getSolution();
-                        } else if (!currentState.isFinal() || currentState.getSolution() < currentState.getSolution()) {
+                State n = s.chooseVert(v);
+                this.statesExpanded++;
 
-                            this.currentState = n;
+                if (n.isFinal()) {
+                    improve(n);
 
-                            // It is possible to prove that the solution will not be better than
-                            // Math.ceil(numRectanglesToCover / 3); therefore, we will use this as a breaker
+                    if (firstSolution) {
+                        this.currentState = n;
+                        return currentState.getSolution();
+                    } else if (!currentState.isFinal() || n.getSolution() < currentState.getSolution()) {
 
-                            if (currentState.getSolution() <= Math.ceil((double) numRectanglesToCover / 3d)) {
-                                return currentState.getSolution();
-                            }
+                        this.currentState = n;
+
+                        // A solution as small as the lower bound is optimal, so we use it as a breaker
+                        if (currentState.getSolution() <= lowerBound) {
+                            return currentState.getSolution();
                         }
                     }
-                    stack.push(n);
                 }
+                stack.push(n);
             }
         }
 
+        // Every state was expanded, so the best solution found is the optimal one
+        if (currentState.isFinal())
+            return currentState.getSolution();
+
         throw new PartitionProblemException("Unable to find a solution for this instance");
     }
 
@@ -0,0 +1,162 @@
+package rect_partition.approaches;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import rect_partition.Decomposition;
+import rect_partition.State;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Solves each independent part of a set with its own instance of an approach,
+ * all of them at the same time on a fork/join pool, and joins their covers.
+ * There is a solution of the whole set as soon as every part has one; it is
+ * the union of the best solution of each part.
+ */
+public class Decomposed extends Approach {
+
+    private final Decomposition decomposition;
+    private final Approach[] approaches;
+
+    // The best solution of each part so far
+    private final State[] best;
+
+    /**
+     * @param decomposition - the parts of the set
+     * @param approaches    - the approach of each part, built for the instance of
+     *                      the part
+     */
+    public Decomposed(Decomposition decomposition, Approach[] approaches) {
+        super(decomposition.getInstance());
+        this.decomposition = decomposition;
+        this.approaches = approaches.clone();
+        this.best = new State[approaches.length];
+
+        for (int c = 0; c < approaches.length; c++) {
+            int component = c;
+            this.approaches[c].setIncumbentListener(
+                    incumbent -> collect(component, incumbent.getState(), incumbent.getApproach()));
+        }
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        // A greedy cover of every part first, so there is a solution of the whole set
+        // even while the parts that wait for a thread have none
+        for (int c = 0; c < approaches.length; c++) {
+            GreedyMostCoverageFirst greedy = new GreedyMostCoverageFirst(decomposition.getComponent(c));
+            greedy.solve();
+            collect(c, greedy.currentState, greedy.getClass().getSimpleName());
+        }
+
+        // The smallest parts first, since they are the most likely to finish and free
+        // their thread
+        Integer[] order = new Integer[approaches.length];
+        for (int c = 0; c < order.length; c++)
+            order[c] = c;
+        Arrays.sort(order, Comparator.comparingInt(c -> decomposition.getComponent(c).getNumRectangles()));
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(approaches.length, Runtime.getRuntime().availableProcessors()));
+
+        try {
+            List<ForkJoinTask<Integer>> tasks = new ArrayList<>(Collections.nCopies(approaches.length, null));
+
+            for (int c : order) {
+                Approach approach = approaches[c];
+                tasks.set(c, pool.submit(() -> approach.solve()));
+            }
+
+            State[] solutions = new State[approaches.length];
+
+            for (int c = 0; c < approaches.length; c++) {
+                tasks.get(c).get();
+                solutions[c] = approaches[c].currentState;
+            }
+
+            currentState = decomposition.merge(solutions);
+            improve(currentState);
+
+            return currentState.getSolution();
+
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            return stopWithIncumbent();
+        } catch (ExecutionException e) {
+            if (isCancelled())
+                return stopWithIncumbent();
+
+            cancel();
+
+            if (e.getCause() instanceof PartitionProblemException)
+                throw (PartitionProblemException) e.getCause();
+            throw new PartitionProblemException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Keeps the solution of a part and, once every part has one, records their
+     * union if it is the best so far. Called from the threads of the parts
+     */
+    private synchronized void collect(int component, State state, String approach) {
+        if (best[component] != null && best[component].getChosenCount() <= state.getChosenCount())
+            return;
+
+        best[component] = state;
+
+        for (State s : best) {
+            if (s == null)
+                return;
+        }
+
+        State merged = decomposition.merge(best);
+
+        Incumbent current = getIncumbent();
+        if (current == null || merged.getChosenCount() < current.getSize())
+            adopt(new Incumbent(merged, elapsedMillis(), approach));
+    }
+
+    public Decomposition getDecomposition() {
+        return decomposition;
+    }
+
+    /**
+     * The states expanded by the approaches of all the parts, so far
+     */
+    @Override
+    public int getStatesExpanded() {
+        int total = 0;
+        for (Approach approach : approaches)
+            total += approach.getStatesExpanded();
+        return total;
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        for (Approach approach : approaches)
+            approach.cancel();
+    }
+
+    /**
+     * @return true if the approach of every part is exact, since the union of
+     *         minimum covers of the parts is a minimum cover
+     */
+    @Override
+    public boolean isExact() {
+        for (Approach approach : approaches) {
+            if (!approach.isExact())
+                return false;
+        }
+        return true;
+    }
+
+}
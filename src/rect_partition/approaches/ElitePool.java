@@ -0,0 +1,58 @@
+package rect_partition.approaches;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import rect_partition.State;
+
+/**
+ * The smallest covers found by several searches, up to a capacity, without
+ * duplicates. The searches restart from them, so it is shared by their threads
+ * and every method is synchronized.
+ */
+class ElitePool {
+
+    private final int capacity;
+
+    // Sorted by size, the smallest first
+    private final List<State> elites = new ArrayList<>();
+
+    ElitePool(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Adds a cover if the pool is not full or it is smaller than the largest one,
+     * which is then dropped
+     *
+     * @return true if the cover was added
+     */
+    synchronized boolean offer(State s) {
+        int size = s.getChosenCount();
+
+        if (elites.size() == capacity && size >= elites.get(capacity - 1).getChosenCount())
+            return false;
+
+        int position = 0;
+        while (position < elites.size() && elites.get(position).getChosenCount() <= size) {
+            if (elites.get(position).equals(s))
+                return false;
+            position++;
+        }
+
+        elites.add(position, s);
+        if (elites.size() > capacity)
+            elites.remove(capacity);
+
+        return true;
+    }
+
+    /**
+     * @return a random cover of the pool, or null if it is empty
+     */
+    synchronized State pick(SplittableRandom random) {
+        return elites.isEmpty() ? null : elites.get(random.nextInt(elites.size()));
+    }
+
+}
@@ -1,76 +1,107 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
 import rect_partition.utils.PartitionProblemException;
 
 /**
- * In this approach, as we traverse the neighbours of a state, after expanding
- * it, we keep track of which rectangles are being covered. From the states
- * where we get closer to the goal, we choose the one that covers the hardest
- * rectangle. This means, the rectangle that is covered the least times during
- * the search.
+ * In this approach, in each step we look for the hardest rectangle left: the
+ * one that the fewest verts can cover. Then, among the verts that cover it, we
+ * choose the one that covers the most rectangles left.
  */
 public class GreedyHardestRectanglesFirst extends Approach {
 
-    public GreedyHardestRectanglesFirst(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        super(verts, rectanglesToCover);
+    public GreedyHardestRectanglesFirst(Instance instance) {
+        super(instance);
     }
 
+    /**
+     * A rectangle left has no chosen vert, so the number of verts that can cover
+     * it only changes when it gets covered itself. Therefore the rectangles are
+     * sorted once by that number with a counting sort, and the hardest rectangle
+     * left is found by moving a cursor over that order, skipping the covered ones.
+     * The number of rectangles left each vert covers is updated through the
+     * adjacency rows whenever a rectangle gets covered, so every step costs the
+     * degree of the rectangles involved, without building any state.
+     */
     @Override
-    public int solve() throws PartitionProblemException {
-        while (!currentState.isFinal()) {
+    protected int findSolution() throws PartitionProblemException {
+        Instance instance = currentState.getInstance();
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+        int[] rectStart = instance.getRectStart();
+        int[] rectVerts = instance.getRectVerts();
+
+        int numRectangles = instance.getNumRectangles();
+        boolean[] covered = new boolean[numRectangles];
+        int[] gain = new int[instance.getNumVerts()];
+        int maxDegree = 0;
+
+        for (int r = 0; r < numRectangles; r++) {
+            covered[r] = currentState.isCovered(r);
+            maxDegree = Math.max(maxDegree, instance.getRectangleDegree(r));
+
+            if (!covered[r]) {
+                for (int k = rectStart[r]; k < rectStart[r + 1]; k++)
+                    gain[rectVerts[k]]++;
+            }
+        }
 
-            List<State> neighbours = currentState.expand();
+        // Counting sort of the rectangles by the number of verts that cover them
+        int[] bucketStart = new int[maxDegree + 2];
+        for (int r = 0; r < numRectangles; r++)
+            bucketStart[instance.getRectangleDegree(r) + 1]++;
+        for (int d = 0; d <= maxDegree; d++)
+            bucketStart[d + 1] += bucketStart[d];
 
-            Map<Integer, Integer> rectangleCoverageMap = new HashMap<>();
+        int[] order = new int[numRectangles];
+        for (int r = 0; r < numRectangles; r++)
+            order[bucketStart[instance.getRectangleDegree(r)]++] = r;
 
-            State candidate = null;
-            int minCovers = 0;
+        int cursor = 0;
 
-            if (neighbours.size() == 0) {
-                throw new PartitionProblemException("Unable to find a solution for this instance");
-            }
+        // The picks are made on a copy of the starting state, one vert at a time
+        currentState = new State(currentState);
+        int left = currentState.getRectanglesLeftCount();
 
-            this.statesExpanded += neighbours.size();
+        while (left > 0) {
+            if (isCancelled())
+                return stopWithIncumbent();
 
-            for (State neighbour : neighbours) {
-                Set<Integer> newCovers = new HashSet<>(currentState.getRectanglesLeft());
-                Set<Integer> left = neighbour.getRectanglesLeft();
-                newCovers.removeAll(left);
+            while (covered[order[cursor]])
+                cursor++;
 
-                // The newCovers set contains the new rectangles getting covered in the
-                // neighbour
+            int hardest = order[cursor];
 
-                for (int r : newCovers) {
-                    int timesCovered = rectangleCoverageMap.getOrDefault(r, 0) + 1;
-                    rectangleCoverageMap.put(r, timesCovered);
+            if (instance.getRectangleDegree(hardest) == 0)
+                throw new PartitionProblemException("Unable to find a solution for this instance");
 
-                    // With this, we're setting the candidate to the set that covers the rectangle
-                    // that was covered the least ammount of times, thus being the hardest.
-                    if (timesCovered > minCovers) {
-                        minCovers = timesCovered;
-                        candidate = neighbour;
-                    }
-                }
+            int candidate = -1;
+            for (int k = rectStart[hardest]; k < rectStart[hardest + 1]; k++) {
+                int v = rectVerts[k];
+                if (candidate < 0 || gain[v] > gain[candidate] || (gain[v] == gain[candidate] && v < candidate))
+                    candidate = v;
             }
 
-            if (candidate != null) {
-                this.currentState = candidate;
-            } else {
-                throw new PartitionProblemException("Unable to find a solution for this instance");
-            }
+            this.statesExpanded += instance.getRectangleDegree(hardest);
+
+            currentState.addVert(candidate);
 
+            for (int k = vertStart[candidate]; k < vertStart[candidate + 1]; k++) {
+                int r = vertRects[k];
+                if (covered[r])
+                    continue;
+
+                covered[r] = true;
+                left--;
+                for (int j = rectStart[r]; j < rectStart[r + 1]; j++)
+                    gain[rectVerts[j]]--;
+            }
         }
 
+        improve(currentState);
+
         return currentState.getSolution();
     }
 
-}
\ No newline at end of file
+}
@@ -1,10 +1,8 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
-import java.util.List;
-
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
+import rect_partition.utils.LongMaxHeap;
 import rect_partition.utils.PartitionProblemException;
 
 /**
@@ -13,40 +11,100 @@ import rect_partition.utils.PartitionProblemException;
  */
 public class GreedyMostCoverageFirst extends Approach {
 
-    public GreedyMostCoverageFirst(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        super(verts, rectanglesToCover);
+    public GreedyMostCoverageFirst(Instance instance) {
+        super(instance);
     }
 
     /**
-     * In this specific implementation, we get all the neighbours from a state, and
-     * choose the one with most rectangles covered, until we get to a final state.
+     * In this specific implementation, we keep for every vert the number of
+     * rectangles left that it would cover (its gain). Gains only go down as
+     * rectangles get covered, so the verts are kept in a lazy max-heap: when the
+     * top entry has an outdated gain it is pushed back with the current one, and
+     * when it is up to date it is the best choice. Ties go to the lowest vert
+     * index, which is the vert that expanding the state would list first.
      */
     @Override
-    public int solve() throws PartitionProblemException {
+    protected int findSolution() throws PartitionProblemException {
+        Instance instance = currentState.getInstance();
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+        int[] rectStart = instance.getRectStart();
+        int[] rectVerts = instance.getRectVerts();
 
-        while (!currentState.isFinal()) {
+        int numVerts = instance.getNumVerts();
+        int[] gain = new int[numVerts];
+        boolean[] covered = new boolean[instance.getNumRectangles()];
 
-            List<State> neighbours = currentState.expand();
+        for (int r = 0; r < covered.length; r++) {
+            covered[r] = currentState.isCovered(r);
+        }
 
-            if (neighbours.size() == 0) {
-                throw new PartitionProblemException("Unable to find a solution for this instance");
+        LongMaxHeap heap = new LongMaxHeap(numVerts);
+
+        for (int v = 0; v < numVerts; v++) {
+            if (currentState.isChosen(v))
+                continue;
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                if (!covered[vertRects[k]])
+                    gain[v]++;
             }
+            heap.push(key(gain[v], v));
+        }
+
+        // The picks are made on a copy of the starting state, one vert at a time
+        currentState = new State(currentState);
+        int left = currentState.getRectanglesLeftCount();
 
-            this.statesExpanded += neighbours.size();
+        while (left > 0) {
+            if (isCancelled())
+                return stopWithIncumbent();
 
-            State candidate = neighbours.get(0);
+            if (heap.isEmpty())
+                throw new PartitionProblemException("Unable to find a solution for this instance");
 
-            for (State neighbour : neighbours) {
-                if (neighbour.getRectanglesLeft().size() < candidate.getRectanglesLeft().size()) {
-                    candidate = neighbour;
-                }
+            long top = heap.pop();
+            int v = vertOf(top);
+            this.statesExpanded++;
+
+            if (gainOf(top) != gain[v]) {
+                heap.push(key(gain[v], v));
+                continue;
             }
 
-            currentState = candidate;
+            if (gain[v] == 0)
+                throw new PartitionProblemException("Unable to find a solution for this instance");
+
+            currentState.addVert(v);
+
+            // Every rectangle this vert covers now stops counting for the others
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                int r = vertRects[k];
+                if (covered[r])
+                    continue;
 
+                covered[r] = true;
+                left--;
+                for (int j = rectStart[r]; j < rectStart[r + 1]; j++)
+                    gain[rectVerts[j]]--;
+            }
         }
 
+        improve(currentState);
+
         return currentState.getSolution();
     }
 
-}
\ No newline at end of file
+    private static long key(int gain, int v) {
+        return ((long) gain << 32) | (Integer.MAX_VALUE - v);
+    }
+
+    private static int gainOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int vertOf(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+
+}
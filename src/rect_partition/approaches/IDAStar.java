@@ -0,0 +1,156 @@
+package rect_partition.approaches;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rect_partition.Instance;
+import rect_partition.approaches.bounds.LowerBound;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Iterative deepening A*. Each iteration is a depth first search that prunes
+ * every state whose score, the verts chosen plus the heuristic of the A*
+ * approach, exceeds a threshold. The first threshold is the score of the root
+ * and each next one is the smallest score pruned by the iteration before, so
+ * the first solution found is optimal.
+ *
+ * Unlike A*, it keeps no heap of states: it branches on rectangles over a
+ * single working state changed in place, like the branch and bound approach,
+ * so the memory used only grows with the depth of the search.
+ */
+public class IDAStar extends Approach {
+
+    private final Instance instance;
+    private final LowerBound lowerBound;
+
+    int bound = Integer.MAX_VALUE;
+
+    // The threshold and the number of states expanded of each iteration
+    private final List<Integer> thresholds = new ArrayList<>();
+    private final List<Long> iterationStates = new ArrayList<>();
+
+    public IDAStar(Instance instance) {
+        super(instance);
+        this.instance = instance;
+        this.lowerBound = LowerBound.create(instance);
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        // The greedy solution is kept while the iterations run, and the iterations
+        // stop once the threshold reaches it
+        GreedyMostCoverageFirst greedy = new GreedyMostCoverageFirst(instance);
+        greedy.solve();
+        this.statesExpanded += greedy.getStatesExpanded();
+        currentState = greedy.currentState;
+        bound = currentState.getChosenCount();
+        improve(currentState);
+
+        BranchingState search = new BranchingState(instance);
+        int threshold = lowerBound.estimate(search.covered, search.available);
+
+        while (threshold < Math.min(bound, getUpperBound())) {
+            int nextThreshold = iterate(threshold);
+
+            if (isCancelled())
+                return stopWithIncumbent();
+
+            // Either a solution as small as the threshold was found, or no state was
+            // pruned by it and there is no solution smaller than the greedy one
+            if (bound <= threshold || nextThreshold >= LowerBound.INFEASIBLE)
+                break;
+
+            threshold = nextThreshold;
+        }
+
+        Incumbent best = getIncumbent();
+        currentState = best.getState();
+
+        return best.getSize();
+    }
+
+    /**
+     * A depth first search that prunes the states scored above the threshold. It
+     * stops at the first solution, which is then the new bound
+     *
+     * @return the smallest score above the threshold, or INFEASIBLE if no state
+     *         was pruned by the threshold
+     */
+    private int iterate(int threshold) {
+        BranchingState search = new BranchingState(instance);
+        int nextThreshold = LowerBound.INFEASIBLE;
+        long states = 0;
+        long nodes = 0;
+
+        int depth = 0;
+        search.enter(0, search.selectRectangle());
+
+        while (depth >= 0) {
+            if ((++nodes & (BranchAndBound.CHECK_INTERVAL - 1)) == 0 && isCancelled())
+                break;
+
+            search.retract(depth);
+
+            int v = search.nextVert(depth);
+            if (v < 0) {
+                search.leave(depth);
+                depth--;
+                continue;
+            }
+
+            search.choose(depth, v);
+            this.statesExpanded++;
+            states++;
+
+            if (search.getRectanglesLeft() == 0) {
+                bound = depth + 1;
+                improve(search.toState(depth));
+                break;
+            }
+
+            // The cheap bound first, the heuristic only when it does not prune
+            int score = depth + 1 + search.quickBound();
+            if (score <= threshold)
+                score = depth + 1 + lowerBound.estimate(search.covered, search.available);
+
+            if (score > threshold) {
+                nextThreshold = Math.min(nextThreshold, score);
+                continue;
+            }
+
+            int r = search.selectRectangle();
+
+            // A rectangle left that no vert can cover anymore is a dead end
+            if (search.getCandidates(r) == 0)
+                continue;
+
+            depth++;
+            search.enter(depth, r);
+        }
+
+        thresholds.add(threshold);
+        iterationStates.add(states);
+
+        return nextThreshold;
+    }
+
+    /**
+     * @return the threshold of each iteration so far
+     */
+    public List<Integer> getThresholds() {
+        return thresholds;
+    }
+
+    /**
+     * @return the states expanded by each iteration so far
+     */
+    public List<Long> getIterationStates() {
+        return iterationStates;
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+}
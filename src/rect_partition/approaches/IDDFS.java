@@ -1,14 +1,11 @@
 package rect_partition.approaches;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 import java.util.Stack;
 
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
 import rect_partition.utils.PartitionProblemException;
+import rect_partition.utils.TranspositionTable;
 
 /**
  * This approach is a very straight forward IDDFS with no limit for K. We're not
@@ -21,20 +18,32 @@ public class IDDFS extends Approach {
 
     private boolean found = false;
 
-    public IDDFS(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        super(verts, rectanglesToCover);
+    // We save the hashes of the states visited in the current iteration. Canonical
+    // children are never repeated, so it is only built without them
+    private TranspositionTable visited;
+
+    public IDDFS(Instance instance) {
+        super(instance);
     }
 
     @Override
-    public int solve() throws PartitionProblemException {
+    protected int findSolution() throws PartitionProblemException {
         int k = INITIAL_K;
 
         State root = currentState;
 
+        // The root may already be final, when the preprocessing forced every vert
+        if (root.isFinal()) {
+            improve(root);
+            return root.getSolution();
+        }
+
         while (true) {
             boolean remaining = DFS(root, k);
             if (found)
                 return currentState.getSolution();
+            else if (isCancelled())
+                return stopWithIncumbent();
             else if (!remaining) {
                 throw new PartitionProblemException("Unable to find a solution for this instance");
             }
@@ -44,9 +53,18 @@ public class IDDFS extends Approach {
     }
 
     private boolean DFS(State root, int k) throws PartitionProblemException {
-        boolean remaining = true;
-
-        Set<State> visited = new HashSet<>();
+        // Whether the limit cut off a state, so the next iteration goes further
+        boolean remaining = false;
+        Instance instance = root.getInstance();
+
+        // Every iteration starts with an empty table
+        if (!canonicalBranching) {
+            if (visited == null)
+                visited = new TranspositionTable();
+            else
+                visited.clear();
+            visited.visit(root.getHash(), 0);
+        }
 
         Stack<State> stack = new Stack<>();
         Stack<Integer> depths = new Stack<>();
@@ -54,29 +72,35 @@ public class IDDFS extends Approach {
         depths.add(0);
 
         while (!stack.isEmpty()) {
+            if (isCancelled())
+                return remaining;
+
             State s = stack.pop();
             int depth = depths.pop();
 
-            if (!visited.contains(s))
-                visited.add(s);
-
-            List<State> neighbours = s.expand();
-            if (neighbours.size() == 0) {
-                remaining = false;
+            if (depth >= k) {
+                remaining = true;
+                continue;
             }
 
-            this.statesExpanded += neighbours.size();
-
-            for (State n : neighbours) {
-                if (depth < k) {
-                    if (n.isFinal()) {
-                        this.currentState = n;
-                        found = true;
-                        return true;
-                    }
-                    stack.push(n);
-                    depths.push(depth + 1);
+            for (int v : branchingVerts(s)) {
+                // Canonical children are all different. Otherwise, the hash of a child is
+                // known before building it, so the states seen before are skipped without
+                // being built
+                if (!canonicalBranching && !visited.visit(s.getHash() ^ instance.getVertKey(v), depth + 1))
+                    continue;
+
+                State n = s.chooseVert(v);
+                this.statesExpanded++;
+
+                if (n.isFinal()) {
+                    improve(n);
+                    this.currentState = n;
+                    found = true;
+                    return true;
                 }
+                stack.push(n);
+                depths.push(depth + 1);
             }
         }
 
@@ -0,0 +1,351 @@
+package rect_partition.approaches;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import rect_partition.Instance;
+import rect_partition.State;
+
+/**
+ * A set of chosen verts, not necessarily a cover, that keeps the number of
+ * chosen verts covering each rectangle. Adding, removing or swapping a vert is
+ * evaluated and applied in place, in time proportional to the number of
+ * rectangles of the verts involved, so the local searches can try millions of
+ * moves per second.
+ *
+ * The chosen verts, the other verts and the rectangles left uncovered are also
+ * kept in lists with the position of each element, so that a random one of
+ * them is picked in constant time.
+ *
+ * For each rectangle, the xor of the chosen verts covering it is kept too, so a
+ * rectangle covered once tells which vert covers it, and for each chosen vert
+ * the number of rectangles only it covers. A chosen vert is redundant when that
+ * number is 0.
+ */
+class IncrementalCover {
+
+    private final Instance instance;
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    // Number of chosen verts covering each rectangle, and their xor
+    private final int[] coverCount;
+    private final int[] coverXor;
+
+    // Number of rectangles covered by each chosen vert alone
+    private final int[] uniqueCount;
+
+    // The chosen verts first and the others after them
+    private final int[] verts;
+    private final int[] vertPosition;
+    private int chosenCount = 0;
+
+    private final int[] uncovered;
+    private final int[] uncoveredPosition;
+    private int uncoveredCount;
+
+    // Marks the rectangles of a vert while a swap is evaluated
+    private final int[] stamp;
+    private int currentStamp = 0;
+
+    // The changes since the last mark, if any: v + 1 for an add and -(v + 1) for
+    // a removal
+    private int[] trail;
+    private int trailSize = 0;
+
+    /**
+     * An empty set of verts
+     */
+    IncrementalCover(Instance instance) {
+        this.instance = instance;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+
+        int numVerts = instance.getNumVerts();
+        int numRectangles = instance.getNumRectangles();
+
+        this.coverCount = new int[numRectangles];
+        this.coverXor = new int[numRectangles];
+        this.uniqueCount = new int[numVerts];
+        this.verts = new int[numVerts];
+        this.vertPosition = new int[numVerts];
+        this.uncovered = new int[numRectangles];
+        this.uncoveredPosition = new int[numRectangles];
+        this.uncoveredCount = numRectangles;
+        this.stamp = new int[numRectangles];
+
+        for (int v = 0; v < numVerts; v++) {
+            verts[v] = v;
+            vertPosition[v] = v;
+        }
+        for (int r = 0; r < numRectangles; r++) {
+            uncovered[r] = r;
+            uncoveredPosition[r] = r;
+        }
+    }
+
+    /**
+     * The verts chosen in a state
+     */
+    IncrementalCover(State state) {
+        this(state.getInstance());
+        for (int v : state.getChosenIndexes())
+            add(v);
+    }
+
+    boolean isChosen(int v) {
+        return vertPosition[v] < chosenCount;
+    }
+
+    int getChosenCount() {
+        return chosenCount;
+    }
+
+    int getUncoveredCount() {
+        return uncoveredCount;
+    }
+
+    int getCoverCount(int r) {
+        return coverCount[r];
+    }
+
+    /**
+     * @return the i-th chosen vert, for i below the number of chosen verts. The
+     *         order changes when verts are added or removed
+     */
+    int getChosen(int i) {
+        return verts[i];
+    }
+
+    /**
+     * @return the only chosen vert covering a rectangle covered once
+     */
+    int getOwner(int r) {
+        return coverXor[r];
+    }
+
+    /**
+     * @return the number of rectangles covered by a chosen vert alone
+     */
+    int getUniqueCount(int v) {
+        return uniqueCount[v];
+    }
+
+    /**
+     * @return a random chosen vert, or -1 if there is none
+     */
+    int randomChosen(SplittableRandom random) {
+        return chosenCount == 0 ? -1 : verts[random.nextInt(chosenCount)];
+    }
+
+    /**
+     * @return a random vert that is not chosen, or -1 if there is none
+     */
+    int randomUnchosen(SplittableRandom random) {
+        return chosenCount == verts.length ? -1 : verts[chosenCount + random.nextInt(verts.length - chosenCount)];
+    }
+
+    /**
+     * @return a random rectangle left uncovered, or -1 if there is none
+     */
+    int randomUncovered(SplittableRandom random) {
+        return uncoveredCount == 0 ? -1 : uncovered[random.nextInt(uncoveredCount)];
+    }
+
+    /**
+     * @return a random vert of a random rectangle of a vert, which may be the
+     *         vert itself, or -1 if the vert covers no rectangle
+     */
+    int randomNeighbour(int v, SplittableRandom random) {
+        int degree = vertStart[v + 1] - vertStart[v];
+        if (degree == 0)
+            return -1;
+
+        int r = vertRects[vertStart[v] + random.nextInt(degree)];
+        return randomVert(r, random);
+    }
+
+    /**
+     * @return a random vert that covers a rectangle
+     */
+    int randomVert(int r, SplittableRandom random) {
+        return rectVerts[rectStart[r] + random.nextInt(rectStart[r + 1] - rectStart[r])];
+    }
+
+    /**
+     * @return the change in the number of rectangles uncovered if a vert that is
+     *         not chosen is added
+     */
+    int addDelta(int v) {
+        int delta = 0;
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            if (coverCount[vertRects[k]] == 0)
+                delta--;
+        }
+        return delta;
+    }
+
+    /**
+     * @return the change in the number of rectangles uncovered if a chosen vert is
+     *         removed
+     */
+    int removeDelta(int v) {
+        int delta = 0;
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            if (coverCount[vertRects[k]] == 1)
+                delta++;
+        }
+        return delta;
+    }
+
+    /**
+     * @return the change in the number of rectangles uncovered if a chosen vert is
+     *         replaced by one that is not chosen
+     */
+    int swapDelta(int out, int in) {
+        currentStamp++;
+        int delta = 0;
+
+        for (int k = vertStart[in]; k < vertStart[in + 1]; k++) {
+            int r = vertRects[k];
+            stamp[r] = currentStamp;
+            if (coverCount[r] == 0)
+                delta--;
+        }
+
+        for (int k = vertStart[out]; k < vertStart[out + 1]; k++) {
+            int r = vertRects[k];
+            if (coverCount[r] == 1 && stamp[r] != currentStamp)
+                delta++;
+        }
+
+        return delta;
+    }
+
+    /**
+     * Chooses a vert that is not chosen
+     */
+    void add(int v) {
+        move(v, chosenCount++);
+        record(v + 1);
+
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            int r = vertRects[k];
+            int count = coverCount[r]++;
+
+            if (count == 0) {
+                removeUncovered(r);
+                uniqueCount[v]++;
+            } else if (count == 1)
+                uniqueCount[coverXor[r]]--;
+
+            coverXor[r] ^= v;
+        }
+    }
+
+    /**
+     * Unchooses a chosen vert
+     */
+    void remove(int v) {
+        move(v, --chosenCount);
+        record(-(v + 1));
+
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            int r = vertRects[k];
+            int count = --coverCount[r];
+            coverXor[r] ^= v;
+
+            if (count == 0) {
+                addUncovered(r);
+                uniqueCount[v]--;
+            } else if (count == 1)
+                uniqueCount[coverXor[r]]++;
+        }
+    }
+
+    /**
+     * Replaces a chosen vert by one that is not chosen
+     */
+    void swap(int out, int in) {
+        add(in);
+        remove(out);
+    }
+
+    /**
+     * Starts recording the verts added and removed, so that undo() can revert
+     * them
+     */
+    void mark() {
+        if (trail == null)
+            trail = new int[16];
+        trailSize = 0;
+    }
+
+    /**
+     * Reverts every add and removal since the last mark
+     */
+    void undo() {
+        int[] changes = trail;
+        trail = null;
+
+        while (trailSize > 0) {
+            int change = changes[--trailSize];
+            if (change > 0)
+                remove(change - 1);
+            else
+                add(-change - 1);
+        }
+
+        trail = changes;
+    }
+
+    private void record(int change) {
+        if (trail == null)
+            return;
+
+        if (trailSize == trail.length)
+            trail = Arrays.copyOf(trail, 2 * trailSize);
+        trail[trailSize++] = change;
+    }
+
+    /**
+     * @return the state with the chosen verts
+     */
+    State toState() {
+        State s = new State(instance);
+        for (int i = 0; i < chosenCount; i++)
+            s.addVert(verts[i]);
+        return s;
+    }
+
+    /**
+     * Moves a vert to a position of the list, swapping it with the vert there
+     */
+    private void move(int v, int position) {
+        int other = verts[position];
+        int from = vertPosition[v];
+
+        verts[position] = v;
+        vertPosition[v] = position;
+        verts[from] = other;
+        vertPosition[other] = from;
+    }
+
+    private void addUncovered(int r) {
+        uncovered[uncoveredCount] = r;
+        uncoveredPosition[r] = uncoveredCount++;
+    }
+
+    private void removeUncovered(int r) {
+        int last = uncovered[--uncoveredCount];
+        int position = uncoveredPosition[r];
+
+        uncovered[position] = last;
+        uncoveredPosition[last] = position;
+    }
+
+}
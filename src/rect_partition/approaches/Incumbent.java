@@ -0,0 +1,57 @@
+package rect_partition.approaches;
+
+import java.util.Set;
+
+import rect_partition.State;
+import rect_partition.Vert;
+
+/**
+ * The best solution an approach has found so far, and when it was found
+ */
+public class Incumbent {
+
+    private final State state;
+    private final long millis;
+    private final String approach;
+
+    Incumbent(State state, long millis, String approach) {
+        this.state = state;
+        this.millis = millis;
+        this.approach = approach;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of verts in the solution
+     */
+    public int getSize() {
+        return state.getChosenCount();
+    }
+
+    public Set<Vert> getChosenVerts() {
+        return state.getChosenVerts();
+    }
+
+    /**
+     * @return the milliseconds between the start of the approach and this solution
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the name of the approach that found this solution
+     */
+    public String getApproach() {
+        return approach;
+    }
+
+    @Override
+    public String toString() {
+        return getSize() + " verts after " + millis + "ms (" + approach + ")";
+    }
+
+}
@@ -0,0 +1,11 @@
+package rect_partition.approaches;
+
+/**
+ * Receives every solution that improves the best one an approach has found.
+ * It is called from the thread running the approach.
+ */
+public interface IncumbentListener {
+
+    void improved(Incumbent incumbent);
+
+}
@@ -1,11 +1,9 @@
 package rect_partition.approaches;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.SplittableRandom;
 
+import rect_partition.Instance;
 import rect_partition.State;
-import rect_partition.Vert;
 import rect_partition.utils.PartitionProblemException;
 
 public class IteratedLocalSearch extends Approach {
@@ -23,33 +21,38 @@ public class IteratedLocalSearch extends Approach {
 
     private boolean stochastic;
 
-    public IteratedLocalSearch(Collection<Vert> verts, Collection<Integer> rectanglesToCover, boolean stochastic) {
-        super(verts, rectanglesToCover);
-        localSearchApproach = new GreedyMostCoverageFirst(verts, rectanglesToCover);
+    // Each instance has its own random source, so threads running several of them
+    // do not contend for a shared one
+    private final SplittableRandom random = new SplittableRandom();
 
-        maxVertsAdd = (int) (VERTS_ADD_PERCENTAGE / 100d * verts.size());
-        maxVertsRemove = (int) (VERTS_REMOVE_PERCENTAGE / 100d * verts.size());
+    public IteratedLocalSearch(Instance instance, boolean stochastic) {
+        super(instance);
+        localSearchApproach = new SwapLocalSearch(instance);
+
+        maxVertsAdd = (int) (VERTS_ADD_PERCENTAGE / 100d * instance.getNumVerts());
+        maxVertsRemove = (int) (VERTS_REMOVE_PERCENTAGE / 100d * instance.getNumVerts());
 
         this.stochastic = stochastic;
     }
 
     @Override
-    public int solve() throws PartitionProblemException {
-
-        cur = currentState;
+    protected int findSolution() throws PartitionProblemException {
 
         // Find a solution to start with
-        localSearch();
-
-        currentState = localSearchApproach.currentState;
+        currentState = localSearch(currentState);
         cur = currentState;
+        improve(currentState);
 
         // Repeat K times
         for (int i = 0; i < K; i++) {
+            if (isCancelled())
+                return stopWithIncumbent();
+
             State newState = new State(cur);
 
-            // mutate the state
+            // mutate the state, and bring it back to a local optimum
             newState = perturbate(newState);
+            newState = localSearch(newState);
 
             this.statesExpanded++;
 
@@ -61,11 +64,18 @@ public class IteratedLocalSearch extends Approach {
             // Check if is the best and update
             if (cur.getSolution() < currentState.getSolution()) {
                 currentState = cur;
+                improve(currentState);
             }
         }
         return currentState.getSolution();
     }
 
+    @Override
+    public void cancel() {
+        super.cancel();
+        localSearchApproach.cancel();
+    }
+
     /**
      * This function will return if the state should be accepted. If the stochastic
      * flag is true, we also have a probability of accepting a wrong solution to
@@ -85,7 +95,7 @@ public class IteratedLocalSearch extends Approach {
         else if (stochastic)
             probability = 1 - PROBABILITY_ACCEPT_WRONG_SOLUTION;
 
-        return probability > Math.random();
+        return probability > random.nextDouble();
     }
 
     /**
@@ -95,28 +105,30 @@ public class IteratedLocalSearch extends Approach {
      * @param newState
      */
     private State perturbate(State newState) throws PartitionProblemException {
-        int removeNum = (int) (Math.random() * maxVertsRemove);
-        int addNum = (int) (Math.random() * maxVertsAdd);
+        int removeNum = (int) (random.nextDouble() * maxVertsRemove);
+        int addNum = (int) (random.nextDouble() * maxVertsAdd);
 
-        List<Vert> chosenVerts = new ArrayList<>(newState.getChosenVerts());
-        List<Vert> vertsLeft = new ArrayList<>(newState.getVertsLeft());
+        int[] chosenVerts = newState.getChosenIndexes();
+        int[] vertsLeft = newState.getVertsLeftIndexes();
+        int chosenSize = chosenVerts.length;
+        int leftSize = vertsLeft.length;
 
         for (int i = 0; i < removeNum; i++) {
-            if (chosenVerts.size() == 0)
+            if (chosenSize == 0)
                 break;
 
-            int index = (int) (Math.random() * chosenVerts.size());
-            newState = newState.unchooseVert(chosenVerts.get(index));
-            chosenVerts.remove(index);
+            int index = (int) (random.nextDouble() * chosenSize);
+            newState = newState.unchooseVert(chosenVerts[index]);
+            chosenVerts[index] = chosenVerts[--chosenSize];
         }
 
         for (int i = 0; i < addNum; i++) {
-            if (vertsLeft.size() == 0)
+            if (leftSize == 0)
                 break;
 
-            int index = (int) (Math.random() * vertsLeft.size());
-            newState = newState.chooseVert(vertsLeft.get(index));
-            vertsLeft.remove(index);
+            int index = (int) (random.nextDouble() * leftSize);
+            newState = newState.chooseVert(vertsLeft[index]);
+            vertsLeft[index] = vertsLeft[--leftSize];
         }
 
         return newState;
@@ -125,15 +137,17 @@ public class IteratedLocalSearch extends Approach {
     /**
      * Find a local solution with the approach defined in the constructor
      * 
+     * @param s - the state to start from
+     * @return the local solution
      * @throws PartitionProblemException
      */
-    private void localSearch() throws PartitionProblemException {
+    private State localSearch(State s) throws PartitionProblemException {
         localSearchApproach.statesExpanded = 0;
-        localSearchApproach.currentState = cur;
+        localSearchApproach.currentState = s;
         localSearchApproach.solve();
-        cur = localSearchApproach.currentState;
         this.statesExpanded += localSearchApproach.statesExpanded;
 
+        return localSearchApproach.currentState;
     }
 
 }
\ No newline at end of file
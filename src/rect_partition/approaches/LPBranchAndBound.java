@@ -0,0 +1,298 @@
+package rect_partition.approaches;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+import rect_partition.State;
+import rect_partition.approaches.lp.CoverLP;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Solves the set cover as an integer program. The linear relaxation is solved
+ * at every node with the simplex, and its optimum rounded up is the lower bound
+ * that prunes. At the root, the relaxation is first tightened with cuts of three
+ * rectangles for up to CUT_ROUNDS rounds.
+ *
+ * The search is depth first and branches on the vert with the largest
+ * fractional value: first choosing it, then excluding it. Every relaxation is
+ * also rounded into a cover, taking the verts by decreasing value and dropping
+ * the ones left redundant, which keeps the bound low.
+ */
+public class LPBranchAndBound extends Approach {
+
+    public static int CUT_ROUNDS = 10;
+
+    // Most cuts added per round
+    private static final int CUTS_PER_ROUND = 50;
+
+    private static final double EPSILON = 1e-6;
+
+    private static final byte FREE = 0;
+    private static final byte CHOSEN = 1;
+    private static final byte EXCLUDED = 2;
+
+    private final Instance instance;
+    private final int[] vertStart;
+    private final int[] vertRects;
+
+    private final CoverLP lp;
+
+    int bound = Integer.MAX_VALUE;
+
+    private byte[] status;
+    // Number of chosen verts covering each rectangle
+    private int[] coverCount;
+    private int rectanglesLeft;
+    private int chosenCount;
+
+    private double rootValue;
+
+    public LPBranchAndBound(Instance instance) {
+        super(instance);
+        this.instance = instance;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.lp = new CoverLP(instance);
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        int numVerts = instance.getNumVerts();
+
+        status = new byte[numVerts];
+        coverCount = new int[instance.getNumRectangles()];
+        rectanglesLeft = instance.getNumRectangles();
+        chosenCount = 0;
+
+        // Start with the greedy solution as the bound, so that pruning starts at once
+        GreedyMostCoverageFirst greedy = new GreedyMostCoverageFirst(instance);
+        greedy.solve();
+        this.statesExpanded += greedy.getStatesExpanded();
+        currentState = greedy.currentState;
+        record(currentState);
+
+        IntPredicate covered = r -> coverCount[r] > 0;
+        IntPredicate available = v -> status[v] == FREE;
+        IntPredicate chosen = v -> status[v] == CHOSEN;
+
+        // Cut rounds at the root
+        rootValue = lp.solve(covered, available, chosen);
+        for (int round = 0; round < CUT_ROUNDS && rectanglesLeft > 0; round++) {
+            if (isCancelled())
+                return stopWithIncumbent();
+
+            round();
+            if (lowerBound(rootValue) >= bound || lp.separate(covered, CUTS_PER_ROUND) == 0)
+                break;
+
+            rootValue = lp.solve(covered, available, chosen);
+        }
+
+        // The search stack: the vert branched on at each depth and whether it is
+        // chosen or excluded in the current branch
+        int[] branch = new int[numVerts];
+        int depth = 0;
+        boolean descend = rectanglesLeft > 0 && lowerBound(rootValue) < bound;
+
+        while (true) {
+            if (isCancelled())
+                return stopWithIncumbent();
+
+            if (descend) {
+                this.statesExpanded++;
+
+                int v = evaluate(covered, available, chosen);
+                if (v >= 0) {
+                    branch[depth++] = v;
+                    choose(v);
+                    continue;
+                }
+            }
+
+            // Backtrack to the last depth whose vert was chosen, and exclude it instead
+            descend = false;
+            while (depth > 0 && status[branch[depth - 1]] == EXCLUDED)
+                status[branch[--depth]] = FREE;
+
+            if (depth == 0)
+                break;
+
+            unchoose(branch[depth - 1]);
+            status[branch[depth - 1]] = EXCLUDED;
+            descend = true;
+        }
+
+        Incumbent best = getIncumbent();
+        currentState = best.getState();
+
+        return best.getSize();
+    }
+
+    /**
+     * Solves the relaxation of the current node and rounds it into a cover
+     *
+     * @return the vert to branch on, or -1 if the node is pruned
+     */
+    private int evaluate(IntPredicate covered, IntPredicate available, IntPredicate chosen) {
+        if (rectanglesLeft == 0) {
+            record(buildState());
+            return -1;
+        }
+
+        // In a portfolio, the best solution may have been found by another approach
+        int limit = Math.min(bound, getUpperBound());
+        if (chosenCount + 1 >= limit)
+            return -1;
+
+        double value = lp.solve(covered, available, chosen);
+        if (value == CoverLP.INFEASIBLE || chosenCount + lowerBound(value) >= limit)
+            return -1;
+
+        round();
+
+        int best = -1;
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            double x = lp.getValue(v);
+            if (x > EPSILON && x < 1 - EPSILON && (best < 0 || x > lp.getValue(best)))
+                best = v;
+        }
+
+        // An integral relaxation is a cover, and it was just recorded
+        return best;
+    }
+
+    /**
+     * The smallest integer above the optimum of a relaxation
+     */
+    private static int lowerBound(double value) {
+        return (int) Math.ceil(value - EPSILON);
+    }
+
+    /**
+     * Records the cover made of the chosen verts and the verts with a positive
+     * value in the last relaxation, taken by decreasing value, without the ones
+     * that are redundant
+     */
+    private void round() {
+        int numVerts = instance.getNumVerts();
+
+        Integer[] order = new Integer[numVerts];
+        int n = 0;
+        for (int v = 0; v < numVerts; v++) {
+            if (status[v] == FREE && lp.getValue(v) > EPSILON)
+                order[n++] = v;
+        }
+        Arrays.sort(order, 0, n, (a, b) -> Double.compare(lp.getValue(b), lp.getValue(a)));
+
+        int[] count = coverCount.clone();
+        int left = rectanglesLeft;
+        int[] picked = new int[n];
+        int size = 0;
+
+        for (int i = 0; i < n && left > 0; i++) {
+            int v = order[i];
+            boolean useful = false;
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                if (count[vertRects[k]]++ == 0) {
+                    left--;
+                    useful = true;
+                }
+            }
+
+            if (useful)
+                picked[size++] = v;
+            else {
+                for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                    count[vertRects[k]]--;
+            }
+        }
+
+        if (left > 0)
+            return;
+
+        // The verts picked last have the smallest values, so they are dropped first
+        boolean[] dropped = new boolean[size];
+        int kept = size;
+
+        for (int i = size - 1; i >= 0; i--) {
+            int v = picked[i];
+            boolean redundant = true;
+
+            for (int k = vertStart[v]; k < vertStart[v + 1] && redundant; k++)
+                redundant = count[vertRects[k]] > 1;
+
+            if (redundant) {
+                dropped[i] = true;
+                kept--;
+                for (int k = vertStart[v]; k < vertStart[v + 1]; k++)
+                    count[vertRects[k]]--;
+            }
+        }
+
+        if (chosenCount + kept >= bound)
+            return;
+
+        State s = buildState();
+        for (int i = 0; i < size; i++) {
+            if (!dropped[i])
+                s.addVert(picked[i]);
+        }
+        record(s);
+    }
+
+    private void choose(int v) {
+        status[v] = CHOSEN;
+        chosenCount++;
+
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            if (coverCount[vertRects[k]]++ == 0)
+                rectanglesLeft--;
+        }
+    }
+
+    private void unchoose(int v) {
+        status[v] = FREE;
+        chosenCount--;
+
+        for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+            if (--coverCount[vertRects[k]] == 0)
+                rectanglesLeft++;
+        }
+    }
+
+    private State buildState() {
+        State s = new State(instance);
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (status[v] == CHOSEN)
+                s.addVert(v);
+        }
+        return s;
+    }
+
+    private void record(State s) {
+        bound = Math.min(bound, s.getChosenCount());
+        improve(s);
+    }
+
+    /**
+     * @return the optimum of the relaxation at the root, after the cuts
+     */
+    public double getRootValue() {
+        return rootValue;
+    }
+
+    /**
+     * @return the number of cuts added at the root
+     */
+    public int getNumCuts() {
+        return lp.getNumCuts();
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+}
@@ -0,0 +1,157 @@
+package rect_partition.approaches;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rect_partition.Instance;
+import rect_partition.State;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * The branch and bound approach on every core. The branches of the first
+ * SPLIT_DEPTH levels of the search tree are tasks of a fork/join pool, so idle
+ * threads steal the subtrees left by busy ones; below that, each task searches
+ * its subtree like the sequential approach, on its own working state.
+ *
+ * The best solution size is shared through an atomic integer, so every thread
+ * prunes with the best solution found by any of them. The subtrees searched
+ * depend on the timing of the threads, but the search is exhaustive, so the size
+ * of the solution proven optimal does not.
+ */
+public class ParallelBranchAndBound extends BranchAndBound {
+
+    // The number of threads, or 0 for one per core
+    public static int THREADS = 0;
+    public static int SPLIT_DEPTH = 4;
+
+    public ParallelBranchAndBound(Instance instance) {
+        super(instance);
+
+        // Unless it is part of a portfolio, the bound is only shared by its threads
+        setUpperBound(new AtomicInteger(Integer.MAX_VALUE));
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        seed();
+
+        ForkJoinPool pool = new ForkJoinPool(THREADS > 0 ? THREADS : Runtime.getRuntime().availableProcessors());
+
+        try {
+            if (bound > rootBound)
+                pool.submit(new Subtree(new int[0], new int[0])).get();
+
+            if (isCancelled())
+                return stopWithIncumbent();
+
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            return stopWithIncumbent();
+        } catch (ExecutionException e) {
+            if (isCancelled())
+                return stopWithIncumbent();
+
+            cancel();
+
+            if (e.getCause() instanceof PartitionProblemException)
+                throw (PartitionProblemException) e.getCause();
+            throw new PartitionProblemException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Incumbent best = getIncumbent();
+        currentState = best.getState();
+
+        return best.getSize();
+    }
+
+    @Override
+    synchronized void countExpanded(int expanded) {
+        this.statesExpanded += expanded;
+    }
+
+    @Override
+    synchronized void record(State s) {
+        super.record(s);
+    }
+
+    /**
+     * The subtree below the verts chosen and excluded by its ancestors
+     */
+    private class Subtree extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] chosen;
+        private final int[] excluded;
+
+        Subtree(int[] chosen, int[] excluded) {
+            this.chosen = chosen;
+            this.excluded = excluded;
+        }
+
+        @Override
+        protected void compute() {
+            if (isCancelled())
+                return;
+
+            BranchingState search = new BranchingState(instance);
+            for (int v : chosen)
+                search.choose(v);
+            for (int v : excluded)
+                search.exclude(v);
+
+            if (search.getRectanglesLeft() == 0) {
+                State s = new State(instance);
+                for (int v : chosen)
+                    s.addVert(v);
+                record(s);
+                return;
+            }
+
+            int limit = Math.min(bound, getUpperBound());
+            if (chosen.length + search.quickBound() >= limit
+                    || chosen.length + lowerBound.estimate(search.covered, search.available) >= limit)
+                return;
+
+            int r = search.selectRectangle();
+            if (search.getCandidates(r) == 0)
+                return;
+
+            if (chosen.length >= SPLIT_DEPTH) {
+                search(search, chosen, r);
+                return;
+            }
+
+            // One task per vert that covers the rectangle, each excluding the verts
+            // before it, like the branches of the sequential search
+            search.enter(0, r);
+
+            List<Subtree> children = new ArrayList<>();
+            int[] tried = excluded;
+
+            for (int v = search.nextVert(0); v >= 0; v = search.nextVert(0)) {
+                children.add(new Subtree(append(chosen, v), tried));
+                tried = append(tried, v);
+            }
+
+            countExpanded(children.size());
+            invokeAll(children);
+        }
+
+    }
+
+    private static int[] append(int[] a, int v) {
+        int[] b = Arrays.copyOf(a, a.length + 1);
+        b[a.length] = v;
+        return b;
+    }
+
+}
@@ -0,0 +1,268 @@
+package rect_partition.approaches;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import rect_partition.Instance;
+import rect_partition.State;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Iterated local search on every core. Each thread starts from its own random
+ * greedy cover and runs K iterations with its own random source. An iteration
+ * removes a random share of the chosen verts, up to VERTS_REMOVE_PERCENTAGE,
+ * covers the rectangles left again greedily, drops the verts that became
+ * redundant and applies vert swaps that make the cover smaller (see
+ * SwapNeighbourhood) until none does. The new cover is kept if it is not larger, or otherwise with
+ * probability PROBABILITY_ACCEPT_WRONG_SOLUTION, and undone if not.
+ *
+ * The threads share a pool of the ELITE_POOL_SIZE smallest covers found. A
+ * thread that goes RESTART_INTERVAL iterations without improving its own best
+ * cover restarts from a random one of them.
+ */
+public class ParallelIteratedLocalSearch extends Approach {
+
+    // The number of threads, or 0 for one per core
+    public static int THREADS = 0;
+    public static int ELITE_POOL_SIZE = 8;
+
+    // Iterations without improvement before a thread restarts from the pool
+    static final int RESTART_INTERVAL = 1000;
+
+    // How many iterations a thread counts before adding them to the total
+    private static final int COUNT_INTERVAL = 1024;
+
+    private final Instance instance;
+
+    private final int iterations;
+    private final double removePercentage;
+    private final double probabilityAcceptWorse;
+
+    private final ElitePool pool = new ElitePool(ELITE_POOL_SIZE);
+
+    // The iterations per second of each thread
+    private double[] throughput;
+    private int restarts = 0;
+
+    public ParallelIteratedLocalSearch(Instance instance) {
+        super(instance);
+        this.instance = instance;
+        this.iterations = IteratedLocalSearch.K;
+        this.removePercentage = IteratedLocalSearch.VERTS_REMOVE_PERCENTAGE;
+        this.probabilityAcceptWorse = IteratedLocalSearch.PROBABILITY_ACCEPT_WRONG_SOLUTION;
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        int n = THREADS > 0 ? THREADS : Runtime.getRuntime().availableProcessors();
+        throughput = new double[n];
+
+        ExecutorService service = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+
+        SplittableRandom random = new SplittableRandom();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Worker worker = new Worker(i, random.split());
+            futures.add(service.submit(worker::run));
+        }
+
+        try {
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (!isCancelled()) {
+                cancel();
+                throw new PartitionProblemException(e.getCause().getMessage(), e.getCause());
+            }
+        } finally {
+            service.shutdownNow();
+        }
+
+        if (isCancelled() || getIncumbent() == null)
+            return stopWithIncumbent();
+
+        Incumbent best = getIncumbent();
+        currentState = best.getState();
+
+        return best.getSize();
+    }
+
+    private synchronized void countExpanded(int expanded, int restarted) {
+        this.statesExpanded += expanded;
+        this.restarts += restarted;
+    }
+
+    /**
+     * The search of a thread, with its own cover and random source
+     */
+    private class Worker {
+
+        private final int index;
+        private final SplittableRandom random;
+
+        private final int[] rectStart = instance.getRectStart();
+        private final int[] rectVerts = instance.getRectVerts();
+
+        private IncrementalCover cover = new IncrementalCover(instance);
+        private SwapNeighbourhood neighbourhood = new SwapNeighbourhood(instance, cover);
+
+        private final int[] order = new int[instance.getNumVerts()];
+
+        Worker(int index, SplittableRandom random) {
+            this.index = index;
+            this.random = random;
+        }
+
+        void run() {
+            long start = System.nanoTime();
+
+            repair();
+            dropRedundant();
+            neighbourhood.optimize();
+            int best = cover.getChosenCount();
+            offer();
+
+            int stall = 0;
+            int done = 0;
+            int restarted = 0;
+
+            for (; done < iterations && !isCancelled(); done++) {
+                if (stall >= RESTART_INTERVAL) {
+                    cover = new IncrementalCover(pool.pick(random));
+                    neighbourhood = new SwapNeighbourhood(instance, cover);
+                    best = cover.getChosenCount();
+                    stall = 0;
+                    restarted++;
+                }
+
+                if (done % COUNT_INTERVAL == COUNT_INTERVAL - 1) {
+                    countExpanded(COUNT_INTERVAL, restarted);
+                    restarted = 0;
+                }
+
+                int size = cover.getChosenCount();
+                cover.mark();
+
+                perturbate();
+                repair();
+                dropRedundant();
+                neighbourhood.optimize();
+
+                int newSize = cover.getChosenCount();
+                if (newSize > size && random.nextDouble() >= probabilityAcceptWorse) {
+                    cover.undo();
+                    stall++;
+                    continue;
+                }
+
+                if (newSize < best) {
+                    best = newSize;
+                    stall = 0;
+                    offer();
+                } else
+                    stall++;
+            }
+
+            countExpanded(done % COUNT_INTERVAL, restarted);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            throughput[index] = seconds > 0 ? done / seconds : 0;
+        }
+
+        /**
+         * Removes a random number of random chosen verts
+         */
+        private void perturbate() {
+            int max = (int) (removePercentage / 100d * cover.getChosenCount());
+            int removeNum = 1 + random.nextInt(Math.max(1, max));
+
+            for (int i = 0; i < removeNum && cover.getChosenCount() > 0; i++)
+                cover.remove(cover.randomChosen(random));
+        }
+
+        /**
+         * Covers the rectangles left, taking for a random one of them the vert that
+         * covers the most rectangles left
+         */
+        private void repair() {
+            while (cover.getUncoveredCount() > 0) {
+                int r = cover.randomUncovered(random);
+
+                // Ties are broken at random
+                int best = -1;
+                int bestDelta = 0;
+                int ties = 0;
+                for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                    int delta = cover.addDelta(rectVerts[k]);
+                    if (best < 0 || delta < bestDelta) {
+                        best = rectVerts[k];
+                        bestDelta = delta;
+                        ties = 1;
+                    } else if (delta == bestDelta && random.nextInt(++ties) == 0)
+                        best = rectVerts[k];
+                }
+
+                if (best < 0)
+                    throw new IllegalStateException("Unable to find a solution for this instance");
+
+                cover.add(best);
+            }
+        }
+
+        /**
+         * Removes the chosen verts whose rectangles are all covered by other verts,
+         * in random order
+         */
+        private void dropRedundant() {
+            int n = 0;
+            for (int v = 0; v < order.length; v++) {
+                if (cover.isChosen(v))
+                    order[n++] = v;
+            }
+
+            for (int i = n - 1; i >= 0; i--) {
+                int j = random.nextInt(i + 1);
+                int v = order[j];
+                order[j] = order[i];
+
+                if (cover.getUniqueCount(v) == 0)
+                    cover.remove(v);
+            }
+        }
+
+        private void offer() {
+            State s = cover.toState();
+            pool.offer(s);
+            improve(s);
+        }
+
+    }
+
+    /**
+     * @return the iterations per second of each thread, once the search is over
+     */
+    public double[] getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * @return the number of restarts from the pool of elite covers
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+}
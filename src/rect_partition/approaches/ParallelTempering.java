@@ -0,0 +1,230 @@
+package rect_partition.approaches;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import rect_partition.Instance;
+import rect_partition.State;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Simulated annealing on several replicas at once, each on its own thread. The
+ * replicas are annealing chains kept at a ladder of fixed temperatures, from
+ * MAX_TEMP down to MIN_TEMP geometrically, and each one has its own random
+ * source.
+ *
+ * Every EXCHANGE_INTERVAL moves the threads meet, and the replicas at adjacent
+ * temperatures swap with probability min(1, exp((Ei - Ej) * (1/Ti - 1/Tj))),
+ * so a good cover found by a hot replica sinks to the cold ones to be refined,
+ * and a cold replica stuck in a local minimum rises to escape it. The best cover
+ * of every replica is collected at each meeting. The search stops after ROUNDS
+ * meetings, or when it is cancelled.
+ *
+ * The static fields are the defaults. Each instance keeps its own ladder,
+ * number of rounds and random source, so several of them can run at the same
+ * time with different ones.
+ */
+public class ParallelTempering extends Approach {
+
+    // The number of replicas, each on a thread, or 0 for one per core
+    public static int REPLICAS = 0;
+    public static double MIN_TEMP = 0.05;
+    public static double MAX_TEMP = 0.5;
+    public static int ROUNDS = 200;
+
+    // How many moves each replica tries between exchanges
+    static final int EXCHANGE_INTERVAL = 1 << 16;
+
+    private final int numReplicas;
+    private final double minTemp;
+    private final double maxTemp;
+    private final int rounds;
+    private final SplittableRandom random;
+
+    private final Approach initialApproach;
+
+    private double[] temps;
+    // The replica at each temperature of the ladder
+    private AnnealingChain[] replicas;
+
+    private int round = 0;
+    private int exchanges = 0;
+    private int exchangesTried = 0;
+
+    // Decided when the threads meet, so they all stop at the same meeting
+    private volatile boolean stop = false;
+
+    /**
+     * Parallel tempering with the default ladder and number of rounds
+     */
+    public ParallelTempering(Instance instance) {
+        this(instance, REPLICAS, MIN_TEMP, MAX_TEMP, ROUNDS, new SplittableRandom());
+    }
+
+    /**
+     * @param instance    - the indexed problem set
+     * @param numReplicas - the number of replicas, or 0 for one per core
+     * @param minTemp     - the temperature of the coldest replica
+     * @param maxTemp     - the temperature of the hottest replica
+     * @param rounds      - the number of meetings before the search stops
+     * @param random      - the source of the replicas and the exchanges, used by
+     *                    this instance only
+     */
+    public ParallelTempering(Instance instance, int numReplicas, double minTemp, double maxTemp, int rounds,
+            SplittableRandom random) {
+        super(instance);
+        this.numReplicas = numReplicas;
+        this.minTemp = minTemp;
+        this.maxTemp = maxTemp;
+        this.rounds = rounds;
+        this.random = random;
+        initialApproach = new GreedyMostCoverageFirst(instance);
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        initialApproach.solve();
+        currentState = initialApproach.currentState;
+        improve(currentState);
+
+        // With one per core, at least 4 replicas, so the temperatures of the ladder
+        // are close enough to exchange
+        int n = numReplicas > 0 ? Math.max(2, numReplicas) : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        temps = new double[n];
+        replicas = new AnnealingChain[n];
+        for (int i = 0; i < n; i++) {
+            temps[i] = minTemp * Math.pow(maxTemp / minTemp, (double) i / (n - 1));
+            replicas[i] = new AnnealingChain(currentState, random.split());
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(n, this::meet);
+
+        ExecutorService service = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+
+        ExecutorCompletionService<Void> completion = new ExecutorCompletionService<>(service);
+        for (int i = 0; i < n; i++) {
+            int slot = i;
+            completion.submit(() -> run(slot, barrier), null);
+        }
+
+        // Taken in the order they end, so a replica that failed is seen at once, and
+        // the replicas it left waiting at the barrier are interrupted below
+        try {
+            for (int i = 0; i < n; i++)
+                completion.take().get();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (!isCancelled()) {
+                cancel();
+                throw new PartitionProblemException(e.getCause().getMessage(), e.getCause());
+            }
+        } finally {
+            service.shutdownNow();
+        }
+
+        if (isCancelled())
+            return stopWithIncumbent();
+
+        Incumbent best = getIncumbent();
+        currentState = best.getState();
+
+        return best.getSize();
+    }
+
+    /**
+     * Runs the replica at a temperature of the ladder until the next meeting,
+     * again and again, until the search stops
+     */
+    private void run(int slot, CyclicBarrier barrier) {
+        try {
+            while (!stop) {
+                // The replica at a temperature changes after each exchange
+                AnnealingChain replica = replicas[slot];
+                double temp = temps[slot];
+
+                for (int i = 0; i < EXCHANGE_INTERVAL; i++)
+                    replica.step(temp);
+
+                barrier.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (BrokenBarrierException e) {
+            // Another replica was interrupted or failed, so the search is over
+        } catch (RuntimeException e) {
+            // Release the replicas waiting at the barrier, so solve() reports the cause
+            stop = true;
+            barrier.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Run by the last thread to reach the barrier, while the others wait: collects
+     * the best covers and exchanges the replicas
+     */
+    private void meet() {
+        long moves = 0;
+        for (AnnealingChain replica : replicas) {
+            moves += replica.getMoves();
+
+            State best = replica.getBest();
+            if (best.getChosenCount() < currentState.getChosenCount()) {
+                currentState = best;
+                improve(currentState);
+            }
+        }
+        this.statesExpanded = (int) Math.min(Integer.MAX_VALUE, moves);
+
+        if (++round >= rounds || isCancelled()) {
+            stop = true;
+            return;
+        }
+
+        // Alternate between the even and the odd pairs, so every pair gets its turn
+        for (int i = round % 2; i + 1 < replicas.length; i += 2) {
+            exchangesTried++;
+
+            double exponent = (replicas[i].getCost() - replicas[i + 1].getCost()) * (1 / temps[i] - 1 / temps[i + 1]);
+            if (exponent >= 0 || Math.exp(exponent) > random.nextDouble()) {
+                AnnealingChain replica = replicas[i];
+                replicas[i] = replicas[i + 1];
+                replicas[i + 1] = replica;
+                exchanges++;
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        initialApproach.cancel();
+    }
+
+    /**
+     * @return the temperature of each replica, from the coldest
+     */
+    public double[] getTemperatures() {
+        return temps;
+    }
+
+    /**
+     * @return the fraction of the exchanges tried that were accepted
+     */
+    public double getExchangeRate() {
+        return exchangesTried == 0 ? 0 : (double) exchanges / exchangesTried;
+    }
+
+}
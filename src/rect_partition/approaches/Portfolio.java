@@ -0,0 +1,181 @@
+package rect_partition.approaches;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import rect_partition.Instance;
+import rect_partition.PartitionProblem;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * This approach races several approaches on the same set, each on its own
+ * thread. They share the size of the best solution found so far, so the exact
+ * ones can prune with solutions found by the heuristic ones. The race ends when
+ * an exact approach finishes, which proves the best solution optimal, when every
+ * approach finishes, or when the portfolio is cancelled.
+ */
+public class Portfolio extends Approach {
+
+    // How often the race checks if it was cancelled
+    private static final long POLL_MS = 50;
+
+    private final List<Approach> approaches;
+    // The bound shared by the approaches of the race
+    private final AtomicInteger sharedBound = new AtomicInteger(Integer.MAX_VALUE);
+
+    private boolean exactFinished = false;
+    private boolean provenOptimal = false;
+
+    // The first approach of the race that failed, if any
+    private Throwable failure;
+
+    /**
+     * Races the default portfolio: a greedy, simulated annealing, iterated local
+     * search and branch and bound
+     *
+     * @param instance - the indexed problem set
+     */
+    public Portfolio(Instance instance) {
+        this(instance, Arrays.asList(new GreedyMostCoverageFirst(instance), new SimulatedAnnealing(instance),
+                new IteratedLocalSearch(instance, true), new BranchAndBound(instance)));
+    }
+
+    /**
+     * @param instance   - the indexed problem set
+     * @param approaches - the approaches to race, all built for the same instance
+     */
+    public Portfolio(Instance instance, List<Approach> approaches) {
+        super(instance);
+        this.approaches = new ArrayList<>(approaches);
+
+        for (Approach approach : this.approaches) {
+            approach.setUpperBound(sharedBound);
+            approach.setIncumbentListener(this::collect);
+        }
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        ExecutorService service = Executors.newFixedThreadPool(approaches.size(), r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        ExecutorCompletionService<Approach> completion = new ExecutorCompletionService<>(service);
+
+        List<Future<Approach>> futures = new ArrayList<>();
+        for (Approach approach : approaches) {
+            futures.add(completion.submit(() -> {
+                approach.solve();
+                return approach;
+            }));
+        }
+
+        try {
+            int finished = 0;
+
+            while (finished < approaches.size() && !provenOptimal && !isCancelled()) {
+                Future<Approach> f = completion.poll(POLL_MS, TimeUnit.MILLISECONDS);
+
+                if (f == null)
+                    continue;
+
+                finished++;
+
+                // An exact approach that finished, even without a solution of its own,
+                // proved there is nothing better than the shared bound. One that failed
+                // proved nothing
+                try {
+                    if (f.get().isExact())
+                        exactFinished = true;
+                } catch (ExecutionException e) {
+                    fail(approaches.get(futures.indexOf(f)), e.getCause());
+                }
+
+                // The best solution is optimal once an exact approach finished, as long as
+                // we hold the cover behind the shared bound
+                Incumbent best = getIncumbent();
+                provenOptimal = exactFinished && best != null && best.getSize() <= sharedBound.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Approach approach : approaches)
+                approach.cancel();
+            service.shutdownNow();
+        }
+
+        // With no solution at all, the failure of an approach explains why better
+        // than the race being over
+        if (getIncumbent() == null && failure != null)
+            throw new PartitionProblemException(failure.getMessage(), failure);
+
+        return stopWithIncumbent();
+    }
+
+    /**
+     * Logs the failure of an approach of the race, keeping the first one
+     */
+    private void fail(Approach approach, Throwable cause) {
+        Logger.getLogger(PartitionProblem.LOGGER)
+                .warning(approach.getClass().getSimpleName() + " failed in the portfolio: " + cause);
+
+        if (failure == null)
+            failure = cause;
+    }
+
+    /**
+     * Keeps the solution of an approach if it is the best so far. Called from the
+     * threads of the approaches
+     */
+    private synchronized void collect(Incumbent incumbent) {
+        Incumbent best = getIncumbent();
+
+        if (best == null || incumbent.getSize() < best.getSize())
+            adopt(incumbent);
+    }
+
+    /**
+     * The states expanded by all the approaches in the race, so far
+     */
+    @Override
+    public int getStatesExpanded() {
+        int total = statesExpanded;
+        for (Approach approach : approaches)
+            total += approach.getStatesExpanded();
+        return total;
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        for (Approach approach : approaches)
+            approach.cancel();
+    }
+
+    /**
+     * @return the name of the approach that found the returned solution
+     */
+    public String getWinner() {
+        Incumbent best = getIncumbent();
+        return best == null ? null : best.getApproach();
+    }
+
+    /**
+     * @return true if an exact approach finished, which proves the returned
+     *         solution optimal
+     */
+    public boolean isProvenOptimal() {
+        return provenOptimal;
+    }
+
+}
@@ -0,0 +1,66 @@
+package rect_partition.approaches;
+
+import rect_partition.Preprocessor;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Runs an approach on a reduced problem set and maps every solution it finds
+ * back to the original set, adding the verts the reduction forced.
+ */
+public class Preprocessed extends Approach {
+
+    private final Preprocessor preprocessor;
+    private final Approach approach;
+
+    /**
+     * @param preprocessor - the reduction of the set
+     * @param approach     - the approach, built for the reduced instance
+     */
+    public Preprocessed(Preprocessor preprocessor, Approach approach) {
+        super(preprocessor.getOriginal());
+        this.preprocessor = preprocessor;
+        this.approach = approach;
+
+        // Keep the name of the approach that found each solution
+        approach.setIncumbentListener(incumbent -> adopt(new Incumbent(preprocessor.restore(incumbent.getState()),
+                incumbent.getMillis(), incumbent.getApproach())));
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        approach.solve();
+
+        currentState = preprocessor.restore(approach.currentState);
+        improve(currentState);
+
+        return currentState.getSolution();
+    }
+
+    public Preprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    /**
+     * @return the approach solving the reduced set
+     */
+    public Approach getApproach() {
+        return approach;
+    }
+
+    @Override
+    public int getStatesExpanded() {
+        return approach.getStatesExpanded();
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        approach.cancel();
+    }
+
+    @Override
+    public boolean isExact() {
+        return approach.isExact();
+    }
+
+}
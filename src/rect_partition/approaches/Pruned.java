@@ -0,0 +1,98 @@
+package rect_partition.approaches;
+
+import rect_partition.RedundancyElimination;
+import rect_partition.State;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * Runs an approach and drops the redundant verts of every solution it finds,
+ * so the solutions of the heuristic approaches, which often leave some, get
+ * smaller at almost no cost.
+ */
+public class Pruned extends Approach {
+
+    private final Approach approach;
+
+    // Verts dropped from the solution returned, and from the best one collected
+    private int dropped = 0;
+    private int incumbentDropped = 0;
+
+    /**
+     * @param approach - the approach, built for the same instance
+     */
+    public Pruned(Approach approach) {
+        super(approach.currentState.getInstance());
+        this.approach = approach;
+
+        // Keep the name of the approach that found each solution
+        approach.setIncumbentListener(this::collect);
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        approach.solve();
+
+        State found = approach.currentState;
+        currentState = RedundancyElimination.prune(found);
+        dropped = found.getChosenCount() - currentState.getChosenCount();
+
+        // An earlier solution of the approach may have pruned to a smaller one
+        synchronized (this) {
+            Incumbent best = getIncumbent();
+            if (best != null && best.getSize() < currentState.getChosenCount()) {
+                currentState = best.getState();
+                dropped = incumbentDropped;
+            }
+        }
+
+        improve(currentState);
+
+        return currentState.getSolution();
+    }
+
+    /**
+     * Keeps the pruned solution of the approach if it is the best so far. Pruning
+     * does not keep the order of the sizes, so a solution the approach improved
+     * may not improve once pruned
+     */
+    private synchronized void collect(Incumbent incumbent) {
+        State pruned = RedundancyElimination.prune(incumbent.getState());
+
+        Incumbent best = getIncumbent();
+        if (best == null || pruned.getChosenCount() < best.getSize()) {
+            adopt(new Incumbent(pruned, incumbent.getMillis(), incumbent.getApproach()));
+            incumbentDropped = incumbent.getSize() - pruned.getChosenCount();
+        }
+    }
+
+    /**
+     * @return the approach whose solutions are pruned
+     */
+    public Approach getApproach() {
+        return approach;
+    }
+
+    /**
+     * @return the number of verts dropped from the solution of the approach
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public int getStatesExpanded() {
+        return approach.getStatesExpanded();
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        approach.cancel();
+    }
+
+    @Override
+    public boolean isExact() {
+        return approach.isExact();
+    }
+
+}
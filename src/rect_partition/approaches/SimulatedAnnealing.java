@@ -1,133 +1,104 @@
 package rect_partition.approaches;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.SplittableRandom;
 
-import rect_partition.State;
-import rect_partition.Vert;
+import rect_partition.Instance;
 import rect_partition.utils.PartitionProblemException;
 
+/**
+ * Simulated annealing: a single chain of moves over sets of verts (see
+ * AnnealingChain), starting from the greedy cover, whose temperature falls
+ * geometrically after every move until it reaches the final temperature.
+ *
+ * The static fields are the defaults of the schedule. Each instance keeps its
+ * own schedule and random source, so several of them can run at the same time
+ * with different ones.
+ */
 public class SimulatedAnnealing extends Approach {
 
-    public static double INITIAL_TEMP = 10000;
-    public static double COOLING_RATE = 0.003;
-    public static double VERTS_REMOVE_PERCENTAGE = 18;
-    public static double VERTS_ADD_PERCENTAGE = 14;
+    public static double INITIAL_TEMP = 2;
+    public static double FINAL_TEMP = 0.05;
+    public static double COOLING_RATE = 0.000001;
 
-    private int maxVertsRemove;
-    private int maxVertsAdd;
+    // How many moves are tried between checks for a cancellation
+    static final int CHECK_INTERVAL = 1 << 14;
 
-    private Approach initialApproach;
-    private State cur;
+    private final double initialTemp;
+    private final double finalTemp;
+    private final double coolingRate;
+    private final SplittableRandom random;
 
-    public SimulatedAnnealing(Collection<Vert> verts, Collection<Integer> rectanglesToCover) {
-        super(verts, rectanglesToCover);
-        initialApproach = new GreedyMostCoverageFirst(verts, rectanglesToCover);
+    private final Approach initialApproach;
 
-        maxVertsAdd = (int) (VERTS_ADD_PERCENTAGE / 100d * verts.size());
-        maxVertsRemove = (int) (VERTS_REMOVE_PERCENTAGE / 100d * verts.size());
+    /**
+     * Simulated annealing with the default schedule
+     */
+    public SimulatedAnnealing(Instance instance) {
+        this(instance, INITIAL_TEMP, FINAL_TEMP, COOLING_RATE, new SplittableRandom());
+    }
+
+    /**
+     * @param instance    - the indexed problem set
+     * @param initialTemp - the temperature of the first move
+     * @param finalTemp   - the temperature at which the annealing stops
+     * @param coolingRate - the fraction of the temperature lost after each move
+     * @param random      - the source of the moves, used by this instance only
+     */
+    public SimulatedAnnealing(Instance instance, double initialTemp, double finalTemp, double coolingRate,
+            SplittableRandom random) {
+        super(instance);
+        this.initialTemp = initialTemp;
+        this.finalTemp = finalTemp;
+        this.coolingRate = coolingRate;
+        this.random = random;
+        initialApproach = new GreedyMostCoverageFirst(instance);
     }
 
     @Override
-    public int solve() throws PartitionProblemException {
+    protected int findSolution() throws PartitionProblemException {
 
         findInitialSolution();
+        improve(currentState);
 
-        cur = currentState;
+        AnnealingChain chain = new AnnealingChain(currentState, random);
 
-        double temp = INITIAL_TEMP;
+        double temp = initialTemp;
 
         // While the system is not cold
-        while (temp > 1) {
-            State newState = new State(cur);
-
-            // mutate the state
-            newState = perturbate(newState);
+        while (temp > finalTemp) {
+            if ((chain.getMoves() & (CHECK_INTERVAL - 1)) == 0 && isCancelled())
+                break;
 
-            // Check if we accept the new one with the acceptance test
-            if (accept(newState, temp)) {
-                cur = newState;
-            }
+            temp *= 1 - coolingRate;
 
-            // Check if is the best and update
-            if (cur.getSolution() < currentState.getSolution()) {
-                currentState = cur;
+            if (chain.step(temp)) {
+                currentState = chain.getBest();
+                improve(currentState);
             }
-
-            this.statesExpanded++;
-
-            temp *= 1 - COOLING_RATE;
         }
 
-        return currentState.getSolution();
-    }
-
-    /**
-     * This function will return if the state should be accepted. It is based on
-     * probability.
-     * 
-     * @param newState to be evaluated
-     * @param temp     the temperature factor
-     * @return the boolean determining if the state should be accepted
-     */
-    private boolean accept(State newState, double temp) {
-        int newSolution = newState.getSolution();
-        int curSolution = cur.getSolution();
+        this.statesExpanded += (int) chain.getMoves();
 
-        double probability;
+        if (isCancelled())
+            return stopWithIncumbent();
 
-        if (newSolution < curSolution)
-            probability = 1;
-        else
-            probability = Math.exp((curSolution - newSolution) / temp);
-
-        return probability > Math.random();
+        return currentState.getSolution();
     }
 
-    /**
-     * Perturbate the solution. In this specific implementation, we will add and
-     * remove some verts, randomly
-     * 
-     * @param newState
-     */
-    private State perturbate(State newState) throws PartitionProblemException {
-        int removeNum = (int) (Math.random() * maxVertsRemove);
-        int addNum = (int) (Math.random() * maxVertsAdd);
-
-        List<Vert> chosenVerts = new ArrayList<>(newState.getChosenVerts());
-        List<Vert> vertsLeft = new ArrayList<>(newState.getVertsLeft());
-
-        for (int i = 0; i < removeNum; i++) {
-            if (chosenVerts.size() == 0)
-                break;
-
-            int index = (int) (Math.random() * chosenVerts.size());
-            newState = newState.unchooseVert(chosenVerts.get(index));
-            chosenVerts.remove(index);
-        }
-
-        for (int i = 0; i < addNum; i++) {
-            if (vertsLeft.size() == 0)
-                break;
-
-            int index = (int) (Math.random() * vertsLeft.size());
-            newState = newState.chooseVert(vertsLeft.get(index));
-            vertsLeft.remove(index);
-        }
-
-        return newState;
+    @Override
+    public void cancel() {
+        super.cancel();
+        initialApproach.cancel();
     }
 
     /**
      * Find an initial solution with the approach defined in the constructor
-     * 
+     *
      * @throws PartitionProblemException
      */
     private void findInitialSolution() throws PartitionProblemException {
         initialApproach.solve();
         this.currentState = initialApproach.currentState;
-        this.cur = currentState;
     }
 
-}
\ No newline at end of file
+}
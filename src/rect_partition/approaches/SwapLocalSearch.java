@@ -0,0 +1,50 @@
+package rect_partition.approaches;
+
+import rect_partition.Instance;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * A local search from the current state: if it is not a cover, it is
+ * completed greedily first, and then its size is reduced with 1-for-2 and
+ * 2-for-3 vert swaps (see SwapNeighbourhood) until no swap helps.
+ */
+public class SwapLocalSearch extends Approach {
+
+    private final Instance instance;
+    private final GreedyMostCoverageFirst greedy;
+
+    public SwapLocalSearch(Instance instance) {
+        super(instance);
+        this.instance = instance;
+        this.greedy = new GreedyMostCoverageFirst(instance);
+    }
+
+    @Override
+    protected int findSolution() throws PartitionProblemException {
+        if (!currentState.isFinal()) {
+            greedy.currentState = currentState;
+            greedy.statesExpanded = 0;
+            greedy.solve();
+            this.statesExpanded += greedy.statesExpanded;
+            currentState = greedy.currentState;
+        }
+
+        IncrementalCover cover = new IncrementalCover(currentState);
+        SwapNeighbourhood neighbourhood = new SwapNeighbourhood(instance, cover);
+
+        if (neighbourhood.optimize() > 0)
+            currentState = cover.toState();
+
+        this.statesExpanded += (int) neighbourhood.getMovesTried();
+        improve(currentState);
+
+        return currentState.getSolution();
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        greedy.cancel();
+    }
+
+}
@@ -0,0 +1,202 @@
+package rect_partition.approaches;
+
+import rect_partition.Instance;
+
+/**
+ * Local search moves that make a cover smaller by swapping verts: adding one
+ * vert and removing two (1-for-2), or adding two and removing three (2-for-3).
+ *
+ * A chosen vert can only be removed once every rectangle it covers alone is
+ * covered by another vert, so the moves are found from the rectangles covered
+ * once. To remove a chosen vert u, the first vert added is one of the verts of
+ * a rectangle only u covers, the one of them with the fewest verts. Adding it
+ * takes those rectangles from their owners, and the owners left with none are
+ * removed. If fewer than two are, the second vert added, in the same way, takes
+ * the rectangles left of one of the owners whose rectangles the first vert
+ * partly took. A move that does not remove enough verts is undone.
+ */
+class SwapNeighbourhood {
+
+    private final IncrementalCover cover;
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    // The verts removed by the move being tried
+    private final int[] removed;
+    private int removedCount = 0;
+
+    // The chosen verts at the start of a pass
+    private final int[] order;
+
+    private long movesTried = 0;
+
+    SwapNeighbourhood(Instance instance, IncrementalCover cover) {
+        this.cover = cover;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+        this.removed = new int[instance.getNumVerts()];
+        this.order = new int[instance.getNumVerts()];
+    }
+
+    /**
+     * Removes the redundant verts and applies improving moves until there is none
+     * left
+     *
+     * @return the number of verts the cover lost
+     */
+    int optimize() {
+        int start = cover.getChosenCount();
+        boolean improved = true;
+
+        while (improved) {
+            improved = false;
+
+            int n = cover.getChosenCount();
+            for (int i = 0; i < n; i++)
+                order[i] = cover.getChosen(i);
+
+            for (int i = 0; i < n; i++) {
+                int u = order[i];
+                if (!cover.isChosen(u))
+                    continue;
+
+                if (cover.getUniqueCount(u) == 0) {
+                    cover.remove(u);
+                    improved = true;
+                } else if (replace(u))
+                    improved = true;
+            }
+        }
+
+        return start - cover.getChosenCount();
+    }
+
+    /**
+     * Tries the 1-for-2 and 2-for-3 moves that remove a chosen vert
+     *
+     * @return true if a move made the cover smaller
+     */
+    private boolean replace(int u) {
+        int r = uniqueRectangle(u);
+
+        for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+            int w = rectVerts[k];
+            if (w == u)
+                continue;
+
+            movesTried++;
+            removedCount = 0;
+
+            cover.add(w);
+            dropFreed(w);
+
+            // One added and two removed
+            if (removedCount >= 2)
+                return true;
+
+            if (secondAdd(w, 3 - removedCount))
+                return true;
+
+            restore(0);
+            cover.remove(w);
+        }
+
+        return false;
+    }
+
+    /**
+     * Tries to add a second vert that removes enough chosen verts, after a first
+     * one was added
+     *
+     * @param first - the vert added first
+     * @param needed - the number of verts it must remove
+     * @return true if it did
+     */
+    private boolean secondAdd(int first, int needed) {
+        int mark = removedCount;
+
+        // The owners whose rectangles the first vert partly took
+        for (int k = vertStart[first]; k < vertStart[first + 1]; k++) {
+            int r = vertRects[k];
+            if (cover.getCoverCount(r) != 2)
+                continue;
+
+            int u = cover.getOwner(r) ^ first;
+            if (!cover.isChosen(u) || cover.getUniqueCount(u) == 0)
+                continue;
+
+            int s = uniqueRectangle(u);
+            for (int j = rectStart[s]; j < rectStart[s + 1]; j++) {
+                int w = rectVerts[j];
+                if (w == u || cover.isChosen(w))
+                    continue;
+
+                movesTried++;
+
+                cover.add(w);
+                dropFreed(w);
+
+                if (removedCount - mark >= needed)
+                    return true;
+
+                restore(mark);
+                cover.remove(w);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the chosen verts left redundant by an added vert: the owners of its
+     * rectangles that now cover none alone
+     */
+    private void dropFreed(int w) {
+        for (int k = vertStart[w]; k < vertStart[w + 1]; k++) {
+            int r = vertRects[k];
+            if (cover.getCoverCount(r) != 2)
+                continue;
+
+            int u = cover.getOwner(r) ^ w;
+            if (cover.isChosen(u) && cover.getUniqueCount(u) == 0) {
+                cover.remove(u);
+                removed[removedCount++] = u;
+            }
+        }
+    }
+
+    /**
+     * Chooses again the verts removed since a position of the list
+     */
+    private void restore(int mark) {
+        while (removedCount > mark)
+            cover.add(removed[--removedCount]);
+    }
+
+    /**
+     * @return the rectangle covered by a chosen vert alone that has the fewest
+     *         verts
+     */
+    private int uniqueRectangle(int u) {
+        int best = -1;
+        for (int k = vertStart[u]; k < vertStart[u + 1]; k++) {
+            int r = vertRects[k];
+            if (cover.getCoverCount(r) == 1
+                    && (best < 0 || rectStart[r + 1] - rectStart[r] < rectStart[best + 1] - rectStart[best]))
+                best = r;
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of verts added to try a move so far
+     */
+    long getMovesTried() {
+        return movesTried;
+    }
+
+}
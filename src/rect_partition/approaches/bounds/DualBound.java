@@ -0,0 +1,104 @@
+package rect_partition.approaches.bounds;
+
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+
+/**
+ * A feasible solution of the dual of the linear relaxation: a weight for every
+ * rectangle left such that the weights of the rectangles of any available vert
+ * add up to 1 at most. By weak duality, the sum of the weights is a lower bound.
+ *
+ * The weights are raised greedily, the rectangles with the fewest verts first.
+ * Each rectangle takes, from each of its verts, an equal share of what is left
+ * of that vert among the rectangles still to be weighted, and a second pass
+ * raises every rectangle as far as its verts still allow.
+ */
+public class DualBound extends LowerBound {
+
+    // Tolerance for the rounding of the sum of the weights
+    private static final double EPSILON = 1e-9;
+
+    private final double[] slack;
+    private final int[] remaining;
+
+    public DualBound(Instance instance) {
+        super(instance);
+        this.slack = new double[instance.getNumVerts()];
+        this.remaining = new int[instance.getNumVerts()];
+    }
+
+    @Override
+    public int estimate(IntPredicate covered, IntPredicate available) {
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            slack[v] = 1;
+            remaining[v] = 0;
+        }
+
+        for (int r : order) {
+            if (covered.test(r))
+                continue;
+
+            boolean coverable = false;
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (available.test(v)) {
+                    coverable = true;
+                    remaining[v]++;
+                }
+            }
+
+            if (!coverable)
+                return INFEASIBLE;
+        }
+
+        double sum = 0;
+
+        for (int r : order) {
+            if (covered.test(r))
+                continue;
+
+            double weight = Double.MAX_VALUE;
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (available.test(v))
+                    weight = Math.min(weight, slack[v] / remaining[v]);
+            }
+            weight = Math.max(weight, 0);
+
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (available.test(v)) {
+                    slack[v] -= weight;
+                    remaining[v]--;
+                }
+            }
+
+            sum += weight;
+        }
+
+        for (int r : order) {
+            if (covered.test(r))
+                continue;
+
+            double weight = Double.MAX_VALUE;
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (available.test(v))
+                    weight = Math.min(weight, slack[v]);
+            }
+            weight = Math.max(weight, 0);
+
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (available.test(v))
+                    slack[v] -= weight;
+            }
+
+            sum += weight;
+        }
+
+        return (int) Math.ceil(sum - EPSILON);
+    }
+
+}
@@ -0,0 +1,110 @@
+package rect_partition.approaches.bounds;
+
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+import rect_partition.State;
+import rect_partition.utils.PartitionProblemException;
+
+/**
+ * An admissible estimate of how many verts are still needed to cover the
+ * rectangles left: no cover of them with the verts available is smaller. The
+ * exact approaches use it to prune the states that cannot beat the best
+ * solution.
+ *
+ * The bound to use is chosen with the lowerBound property: none, degree,
+ * packing or dual.
+ */
+public abstract class LowerBound {
+
+    public static final String[] TYPES = { "none", "degree", "packing", "dual" };
+
+    public static String TYPE = "dual";
+
+    /**
+     * Returned when a rectangle left has no vert available to cover it. It is
+     * small enough to be added to a depth without overflowing
+     */
+    public static final int INFEASIBLE = Integer.MAX_VALUE / 2;
+
+    protected final Instance instance;
+    protected final int[] vertStart;
+    protected final int[] vertRects;
+    protected final int[] rectStart;
+    protected final int[] rectVerts;
+
+    // The rectangles sorted by the number of verts that cover them, fewest first
+    protected final int[] order;
+
+    protected LowerBound(Instance instance) {
+        this.instance = instance;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+
+        int numRectangles = instance.getNumRectangles();
+        int maxDegree = 0;
+        for (int r = 0; r < numRectangles; r++)
+            maxDegree = Math.max(maxDegree, instance.getRectangleDegree(r));
+
+        int[] bucketStart = new int[maxDegree + 2];
+        for (int r = 0; r < numRectangles; r++)
+            bucketStart[instance.getRectangleDegree(r) + 1]++;
+        for (int d = 0; d <= maxDegree; d++)
+            bucketStart[d + 1] += bucketStart[d];
+
+        this.order = new int[numRectangles];
+        for (int r = 0; r < numRectangles; r++)
+            order[bucketStart[instance.getRectangleDegree(r)]++] = r;
+    }
+
+    /**
+     * @param covered   - tells if a rectangle index is covered
+     * @param available - tells if a vert index may still be chosen
+     * @return the estimate, 0 if every rectangle is covered, or INFEASIBLE if
+     *         some rectangle left cannot be covered
+     */
+    public abstract int estimate(IntPredicate covered, IntPredicate available);
+
+    /**
+     * The estimate for a state, where every vert not chosen is available
+     */
+    public int estimate(State state) {
+        return estimate(state::isCovered, v -> !state.isChosen(v));
+    }
+
+    /**
+     * @return the bound chosen with the lowerBound property
+     */
+    public static LowerBound create(Instance instance) {
+        switch (TYPE) {
+            case "none":
+                return new TrivialBound(instance);
+            case "degree":
+                return new MaxDegreeBound(instance);
+            case "packing":
+                return new PackingBound(instance);
+            default:
+                return new DualBound(instance);
+        }
+    }
+
+    /**
+     * Chooses the bound used by the approaches created from now on
+     *
+     * @param type - one of TYPES
+     * @throws PartitionProblemException if the type is unknown
+     */
+    public static void setType(String type) throws PartitionProblemException {
+        for (String t : TYPES) {
+            if (t.equals(type)) {
+                TYPE = type;
+                return;
+            }
+        }
+
+        throw new PartitionProblemException("Unknown lower bound " + type + " (expected none, degree, packing or dual)");
+    }
+
+}
@@ -0,0 +1,57 @@
+package rect_partition.approaches.bounds;
+
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+
+/**
+ * No available vert covers more rectangles left than the one that covers the
+ * most, so at least the rectangles left divided by that number of verts are
+ * needed.
+ */
+public class MaxDegreeBound extends LowerBound {
+
+    public MaxDegreeBound(Instance instance) {
+        super(instance);
+    }
+
+    @Override
+    public int estimate(IntPredicate covered, IntPredicate available) {
+        int left = 0;
+
+        for (int r = 0; r < instance.getNumRectangles(); r++) {
+            if (covered.test(r))
+                continue;
+
+            boolean coverable = false;
+            for (int k = rectStart[r]; k < rectStart[r + 1] && !coverable; k++)
+                coverable = available.test(rectVerts[k]);
+
+            if (!coverable)
+                return INFEASIBLE;
+
+            left++;
+        }
+
+        if (left == 0)
+            return 0;
+
+        int maxDegree = 0;
+
+        for (int v = 0; v < instance.getNumVerts(); v++) {
+            if (!available.test(v))
+                continue;
+
+            int degree = 0;
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                if (!covered.test(vertRects[k]))
+                    degree++;
+            }
+
+            maxDegree = Math.max(maxDegree, degree);
+        }
+
+        return (left + maxDegree - 1) / maxDegree;
+    }
+
+}
@@ -0,0 +1,58 @@
+package rect_partition.approaches.bounds;
+
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+
+/**
+ * Rectangles left that share no available vert need a different vert each. This
+ * bound greedily packs such rectangles, the ones with the fewest verts first,
+ * and counts them.
+ */
+public class PackingBound extends LowerBound {
+
+    // The verts used by a packed rectangle are marked with the stamp of the call
+    private final int[] used;
+    private int stamp = 0;
+
+    public PackingBound(Instance instance) {
+        super(instance);
+        this.used = new int[instance.getNumVerts()];
+    }
+
+    @Override
+    public int estimate(IntPredicate covered, IntPredicate available) {
+        stamp++;
+        int packed = 0;
+
+        for (int r : order) {
+            if (covered.test(r))
+                continue;
+
+            boolean coverable = false;
+            boolean disjoint = true;
+
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (available.test(v)) {
+                    coverable = true;
+                    disjoint &= used[v] != stamp;
+                }
+            }
+
+            if (!coverable)
+                return INFEASIBLE;
+
+            if (disjoint) {
+                packed++;
+                for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                    if (available.test(rectVerts[k]))
+                        used[rectVerts[k]] = stamp;
+                }
+            }
+        }
+
+        return packed;
+    }
+
+}
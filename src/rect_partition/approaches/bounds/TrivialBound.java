@@ -0,0 +1,27 @@
+package rect_partition.approaches.bounds;
+
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+
+/**
+ * One more vert is needed as long as a rectangle is left. Used as the baseline
+ * to compare the other bounds with.
+ */
+public class TrivialBound extends LowerBound {
+
+    public TrivialBound(Instance instance) {
+        super(instance);
+    }
+
+    @Override
+    public int estimate(IntPredicate covered, IntPredicate available) {
+        for (int r = 0; r < instance.getNumRectangles(); r++) {
+            if (!covered.test(r))
+                return 1;
+        }
+
+        return 0;
+    }
+
+}
@@ -0,0 +1,333 @@
+package rect_partition.approaches.lp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import rect_partition.Instance;
+
+/**
+ * The linear relaxation of the set cover of an instance: minimize the sum of
+ * x over the verts, with the x of the verts of each rectangle adding up to 1 at
+ * least and 0 <= x <= 1. It is solved through its dual, a packing of the
+ * rectangles into the verts, with the simplex.
+ *
+ * The relaxation can be tightened with cuts. Adding the constraints of three
+ * rectangles, halving and rounding up gives one: the verts that cover one or
+ * two of them count once, the ones that cover all three count twice, and the
+ * sum is 2 at least. Every cover satisfies it, but a relaxed solution with
+ * x = 1/2 on three verts that each cover two of the rectangles does not.
+ */
+public class CoverLP {
+
+    public static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+
+    private static final double EPSILON = 1e-6;
+
+    private final Instance instance;
+    private final int[] vertStart;
+    private final int[] vertRects;
+    private final int[] rectStart;
+    private final int[] rectVerts;
+
+    // A cut: the sum of the coefficients of its verts chosen is rhs at least
+    private static class Cut {
+        final int[] verts;
+        final int[] coefficients;
+        final int rhs;
+
+        Cut(int[] verts, int[] coefficients, int rhs) {
+            this.verts = verts;
+            this.coefficients = coefficients;
+            this.rhs = rhs;
+        }
+    }
+
+    private final List<Cut> cuts = new ArrayList<>();
+
+    // The value of each vert in the last solution
+    private final double[] x;
+    private double value;
+
+    // The row of each vert and the column of each rectangle in the last program,
+    // or -1
+    private final int[] row;
+    private final int[] column;
+
+    // Marks for the separation
+    private final int[] stamp;
+    private final int[] count;
+    private int currentStamp = 0;
+
+    public CoverLP(Instance instance) {
+        this.instance = instance;
+        this.vertStart = instance.getVertStart();
+        this.vertRects = instance.getVertRects();
+        this.rectStart = instance.getRectStart();
+        this.rectVerts = instance.getRectVerts();
+
+        this.x = new double[instance.getNumVerts()];
+        this.row = new int[instance.getNumVerts()];
+        this.column = new int[instance.getNumRectangles()];
+        this.stamp = new int[instance.getNumVerts()];
+        this.count = new int[instance.getNumVerts()];
+    }
+
+    /**
+     * Solves the relaxation of the covers of the rectangles left by the verts
+     * available, with the cuts found so far
+     *
+     * @param covered   - tells if a rectangle index is covered
+     * @param available - tells if a vert index is neither chosen nor excluded
+     * @param chosen    - tells if a vert index is chosen
+     * @return the optimum, or INFEASIBLE if some rectangle left has no vert
+     *         available
+     */
+    public double solve(IntPredicate covered, IntPredicate available, IntPredicate chosen) {
+        int numVerts = instance.getNumVerts();
+        int numRectangles = instance.getNumRectangles();
+
+        Arrays.fill(x, 0);
+        Arrays.fill(row, -1);
+
+        // A row per vert available that covers a rectangle left, and a column per
+        // rectangle left
+        int rows = 0;
+        for (int v = 0; v < numVerts; v++) {
+            if (!available.test(v))
+                continue;
+
+            for (int k = vertStart[v]; k < vertStart[v + 1]; k++) {
+                if (!covered.test(vertRects[k])) {
+                    row[v] = rows++;
+                    break;
+                }
+            }
+        }
+
+        int columns = 0;
+        for (int r = 0; r < numRectangles; r++) {
+            column[r] = -1;
+            if (covered.test(r))
+                continue;
+
+            boolean coverable = false;
+            for (int k = rectStart[r]; k < rectStart[r + 1] && !coverable; k++)
+                coverable = row[rectVerts[k]] >= 0;
+
+            if (!coverable)
+                return value = INFEASIBLE;
+
+            column[r] = columns++;
+        }
+
+        // The cuts that the verts chosen do not satisfy yet, with what is left of
+        // their right hand side
+        List<Cut> active = new ArrayList<>();
+        List<Integer> residual = new ArrayList<>();
+
+        for (Cut cut : cuts) {
+            int rhs = cut.rhs;
+            boolean coverable = false;
+
+            for (int i = 0; i < cut.verts.length; i++) {
+                if (chosen.test(cut.verts[i]))
+                    rhs -= cut.coefficients[i];
+                else if (row[cut.verts[i]] >= 0)
+                    coverable = true;
+            }
+
+            if (rhs <= 0)
+                continue;
+            if (!coverable)
+                return value = INFEASIBLE;
+
+            active.add(cut);
+            residual.add(rhs);
+        }
+
+        Simplex simplex = new Simplex(rows, columns + active.size());
+
+        for (int v = 0; v < numVerts; v++) {
+            if (row[v] >= 0)
+                simplex.setBound(row[v], 1);
+        }
+
+        for (int r = 0; r < numRectangles; r++) {
+            if (column[r] < 0)
+                continue;
+
+            simplex.setObjective(column[r], 1);
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (row[v] >= 0)
+                    simplex.set(row[v], column[r], 1);
+            }
+        }
+
+        for (int c = 0; c < active.size(); c++) {
+            Cut cut = active.get(c);
+            simplex.setObjective(columns + c, residual.get(c));
+
+            for (int i = 0; i < cut.verts.length; i++) {
+                int v = cut.verts[i];
+                if (row[v] >= 0)
+                    simplex.set(row[v], columns + c, Math.min(cut.coefficients[i], residual.get(c)));
+            }
+        }
+
+        value = simplex.solve();
+
+        for (int v = 0; v < numVerts; v++) {
+            if (row[v] >= 0)
+                x[v] = simplex.getDual(row[v]);
+        }
+
+        return value;
+    }
+
+    /**
+     * @return the value of a vert in the last solution, 0 if it was not available
+     */
+    public double getValue(int v) {
+        return x[v];
+    }
+
+    /**
+     * @return the optimum of the last solution
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return true if every vert has an integer value in the last solution
+     */
+    public boolean isIntegral() {
+        for (double value : x) {
+            if (value > EPSILON && value < 1 - EPSILON)
+                return false;
+        }
+        return true;
+    }
+
+    public int getNumCuts() {
+        return cuts.size();
+    }
+
+    /**
+     * Adds the cuts of three rectangles left that the last solution violates the
+     * most. Only the rectangles that share a vert with a positive value with the
+     * first one are combined
+     *
+     * @param covered - tells if a rectangle index is covered, as in the last solve
+     * @param max     - the most cuts to add
+     * @return the number of cuts added
+     */
+    public int separate(IntPredicate covered, int max) {
+        int numRectangles = instance.getNumRectangles();
+
+        List<int[]> triples = new ArrayList<>();
+        List<Double> violations = new ArrayList<>();
+
+        int[] neighbours = new int[numRectangles];
+        boolean[] isNeighbour = new boolean[numRectangles];
+
+        for (int a = 0; a < numRectangles; a++) {
+            if (covered.test(a))
+                continue;
+
+            int n = 0;
+            for (int k = rectStart[a]; k < rectStart[a + 1]; k++) {
+                int v = rectVerts[k];
+                if (x[v] <= EPSILON)
+                    continue;
+
+                for (int j = vertStart[v]; j < vertStart[v + 1]; j++) {
+                    int b = vertRects[j];
+                    if (b > a && !covered.test(b) && !isNeighbour[b]) {
+                        isNeighbour[b] = true;
+                        neighbours[n++] = b;
+                    }
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double violation = 2 - lhs(a, neighbours[i], neighbours[j]);
+                    if (violation > EPSILON) {
+                        triples.add(new int[] { a, neighbours[i], neighbours[j] });
+                        violations.add(violation);
+                    }
+                }
+            }
+
+            for (int i = 0; i < n; i++)
+                isNeighbour[neighbours[i]] = false;
+        }
+
+        Integer[] order = new Integer[triples.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (i, j) -> Double.compare(violations.get(j), violations.get(i)));
+
+        int added = 0;
+        for (int i = 0; i < order.length && added < max; i++) {
+            cuts.add(cut(triples.get(order[i])));
+            added++;
+        }
+
+        return added;
+    }
+
+    /**
+     * @return the left hand side of the cut of three rectangles in the last
+     *         solution
+     */
+    private double lhs(int a, int b, int c) {
+        currentStamp++;
+        double sum = 0;
+
+        for (int r : new int[] { a, b, c }) {
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (stamp[v] != currentStamp) {
+                    stamp[v] = currentStamp;
+                    count[v] = 0;
+                }
+
+                // The coefficient goes from 1 to 2 at the third rectangle
+                if (++count[v] != 2)
+                    sum += x[v];
+            }
+        }
+
+        return sum;
+    }
+
+    private Cut cut(int[] triple) {
+        currentStamp++;
+        int[] verts = new int[rectVerts.length];
+        int n = 0;
+
+        for (int r : triple) {
+            for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                int v = rectVerts[k];
+                if (stamp[v] != currentStamp) {
+                    stamp[v] = currentStamp;
+                    count[v] = 0;
+                    verts[n++] = v;
+                }
+                count[v]++;
+            }
+        }
+
+        int[] coefficients = new int[n];
+        for (int i = 0; i < n; i++)
+            coefficients[i] = (count[verts[i]] + 1) / 2;
+
+        return new Cut(Arrays.copyOf(verts, n), coefficients, 2);
+    }
+
+}
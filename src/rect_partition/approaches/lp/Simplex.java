@@ -0,0 +1,191 @@
+package rect_partition.approaches.lp;
+
+/**
+ * A dense tableau simplex for the linear programs
+ *
+ * max c.y subject to A y <= b, y >= 0
+ *
+ * with b >= 0, so the basis of the slack variables is feasible and there is no
+ * first phase. The set cover relaxation is solved through its dual, which has
+ * this form: one column per rectangle left and one row per vert available.
+ *
+ * The entering column is the one with the most negative reduced cost. After
+ * too many degenerate pivots in a row it switches for good to Bland's rule, the
+ * first negative reduced cost and the first row among the ties, which cannot
+ * cycle.
+ */
+public class Simplex {
+
+    private static final double EPSILON = 1e-9;
+    private static final double ZERO = 1e-12;
+
+    // Degenerate pivots in a row before switching to Bland's rule
+    private static final int DEGENERATE_LIMIT = 50;
+
+    private final int rows;
+    private final int columns;
+    private final int width;
+
+    // Rows 0 to rows - 1 are the constraints and the last one is the objective.
+    // Columns 0 to columns - 1 are y, then one slack per row, then the right hand
+    // side
+    private final double[][] tableau;
+    private final int[] basis;
+    private final int[] support;
+
+    private int pivots = 0;
+
+    /**
+     * A program with every coefficient 0
+     *
+     * @param rows    - the number of constraints
+     * @param columns - the number of variables
+     */
+    public Simplex(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.width = columns + rows + 1;
+        this.tableau = new double[rows + 1][width];
+        this.basis = new int[rows];
+        this.support = new int[width];
+
+        for (int i = 0; i < rows; i++) {
+            tableau[i][columns + i] = 1;
+            basis[i] = columns + i;
+        }
+    }
+
+    /**
+     * Sets a coefficient of A
+     */
+    public void set(int row, int column, double value) {
+        tableau[row][column] = value;
+    }
+
+    /**
+     * Sets a coefficient of b, which must not be negative
+     */
+    public void setBound(int row, double value) {
+        tableau[row][width - 1] = value;
+    }
+
+    /**
+     * Sets a coefficient of c
+     */
+    public void setObjective(int column, double value) {
+        tableau[rows][column] = -value;
+    }
+
+    /**
+     * Solves the program
+     *
+     * @return the maximum of c.y, or Double.POSITIVE_INFINITY if it is unbounded
+     */
+    public double solve() {
+        double[] objective = tableau[rows];
+        int degenerate = 0;
+        boolean bland = false;
+
+        while (true) {
+            int enter = -1;
+
+            for (int j = 0; j < width - 1; j++) {
+                if (objective[j] < -EPSILON && (enter < 0 || (!bland && objective[j] < objective[enter]))) {
+                    enter = j;
+                    if (bland)
+                        break;
+                }
+            }
+
+            if (enter < 0)
+                return objective[width - 1];
+
+            int leave = -1;
+            double ratio = 0;
+
+            for (int i = 0; i < rows; i++) {
+                double a = tableau[i][enter];
+                if (a <= EPSILON)
+                    continue;
+
+                // Rounding errors may leave a right hand side slightly negative
+                double r = Math.max(0, tableau[i][width - 1]) / a;
+                if (leave < 0 || r < ratio - EPSILON || (r <= ratio + EPSILON && basis[i] < basis[leave])) {
+                    leave = i;
+                    ratio = r;
+                }
+            }
+
+            if (leave < 0)
+                return Double.POSITIVE_INFINITY;
+
+            degenerate = ratio <= EPSILON ? degenerate + 1 : 0;
+            bland = degenerate >= DEGENERATE_LIMIT;
+            pivot(leave, enter);
+        }
+    }
+
+    private void pivot(int leave, int enter) {
+        double[] pivotRow = tableau[leave];
+        double p = pivotRow[enter];
+
+        // The tableau stays sparse, so only the nonzero columns of the pivot row are
+        // updated
+        int nonzeros = 0;
+        for (int j = 0; j < width; j++) {
+            if (pivotRow[j] != 0) {
+                pivotRow[j] /= p;
+                support[nonzeros++] = j;
+            }
+        }
+        pivotRow[enter] = 1;
+
+        for (int i = 0; i <= rows; i++) {
+            double[] row = tableau[i];
+            double factor = row[enter];
+            if (i == leave || factor == 0)
+                continue;
+
+            for (int k = 0; k < nonzeros; k++) {
+                int j = support[k];
+                row[j] -= factor * pivotRow[j];
+
+                // Rounding errors would fill the tableau
+                if (Math.abs(row[j]) < ZERO)
+                    row[j] = 0;
+            }
+            row[enter] = 0;
+        }
+
+        basis[leave] = enter;
+        pivots++;
+    }
+
+    /**
+     * @return the value of a variable in the optimal solution
+     */
+    public double getValue(int column) {
+        for (int i = 0; i < rows; i++) {
+            if (basis[i] == column)
+                return tableau[i][width - 1];
+        }
+        return 0;
+    }
+
+    /**
+     * @return the value of the dual variable of a constraint in the optimal
+     *         solution, which for the dual of the set cover relaxation is the value
+     *         of a vert
+     */
+    public double getDual(int row) {
+        return tableau[rows][columns + row];
+    }
+
+    /**
+     * @return the number of pivots made so far
+     */
+    public int getPivots() {
+        return pivots;
+    }
+
+}
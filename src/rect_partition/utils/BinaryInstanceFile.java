@@ -0,0 +1,254 @@
+package rect_partition.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import rect_partition.Instance;
+import rect_partition.Vert;
+
+/**
+ * Compiled problem sets. The text format of the README is converted once with
+ * {@link #compile(File, File)} and every later run only maps the set it needs.
+ *
+ * Layout (big endian):
+ *
+ * Header: magic, version, number of sets N, reserved int, CRC32 of the offset
+ * table (as a long), reserved long.
+ *
+ * Offset table: N+1 longs with the file offset of each set (the last one is the
+ * end of the file), followed by N longs with the CRC32 of each set.
+ *
+ * Set: V, R, E (number of vert -> rectangle entries), then V pairs of
+ * coordinates, the R rectangle identifiers, the V+1 row offsets and the E
+ * rectangle indexes of the vert rows, all as ints.
+ */
+public class BinaryInstanceFile implements InstanceSource {
+
+    public static final int MAGIC = 0x52504249;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private final FileChannel channel;
+    private final int numInstances;
+    private final long[] offsets;
+    private final long[] checksums;
+    private int next = 0;
+
+    public BinaryInstanceFile(File file) throws IOException, PartitionProblemException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            if (channel.size() < HEADER_SIZE)
+                throw new PartitionProblemException("Truncated binary file");
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            if (header.getInt() != MAGIC)
+                throw new PartitionProblemException("Not a compiled set file");
+
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new PartitionProblemException(
+                        "Unsupported binary file version " + version + " (expected " + VERSION + ")");
+
+            this.numInstances = header.getInt();
+            header.getInt();
+            long tableChecksum = header.getLong();
+
+            long tableSize = (long) (2 * numInstances + 1) * Long.BYTES;
+            if (numInstances < 0 || HEADER_SIZE + tableSize > channel.size())
+                throw new PartitionProblemException("Truncated binary file");
+
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, tableSize);
+            if (checksum(table.duplicate()) != tableChecksum)
+                throw new PartitionProblemException("Corrupted binary file: offset table checksum mismatch");
+
+            this.offsets = new long[numInstances + 1];
+            this.checksums = new long[numInstances];
+            table.asLongBuffer().get(offsets).get(checksums);
+
+            if (offsets[numInstances] != channel.size())
+                throw new PartitionProblemException("Truncated binary file");
+        } catch (IOException | PartitionProblemException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compiles a file in the text format into the binary format
+     *
+     * @param input  - the text file
+     * @param output - the binary file to write
+     * @return the number of sets compiled
+     */
+    public static int compile(File input, File output) throws IOException, PartitionProblemException {
+        try (InstanceReader reader = new InstanceReader(input);
+                FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            int n = reader.getNumInstances();
+            long[] offsets = new long[n + 1];
+            long[] checksums = new long[n];
+
+            long tableSize = (long) (2 * n + 1) * Long.BYTES;
+            long position = HEADER_SIZE + tableSize;
+
+            for (int i = 0; i < n; i++) {
+                ByteBuffer block = encode(reader.next());
+
+                offsets[i] = position;
+                checksums[i] = checksum(block.duplicate());
+
+                position += write(out, block, position);
+            }
+
+            offsets[n] = position;
+
+            ByteBuffer table = ByteBuffer.allocate((int) tableSize);
+            table.asLongBuffer().put(offsets).put(checksums);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+            header.putLong(checksum(table.duplicate())).putLong(0);
+            header.flip();
+
+            write(out, header, 0);
+            write(out, table, HEADER_SIZE);
+
+            return n;
+        }
+    }
+
+    private static ByteBuffer encode(Instance instance) {
+        int v = instance.getNumVerts();
+        int r = instance.getNumRectangles();
+        int[] vertStart = instance.getVertStart();
+        int[] vertRects = instance.getVertRects();
+
+        ByteBuffer block = ByteBuffer.allocate((3 + 2 * v + r + v + 1 + vertRects.length) * Integer.BYTES);
+        IntBuffer ints = block.asIntBuffer();
+
+        ints.put(v).put(r).put(vertRects.length);
+
+        for (int i = 0; i < v; i++) {
+            Vert vert = instance.getVert(i);
+            ints.put(vert.getX()).put(vert.getY());
+        }
+
+        for (int i = 0; i < r; i++)
+            ints.put(instance.getRectangleId(i));
+
+        ints.put(vertStart).put(vertRects);
+
+        return block;
+    }
+
+    private static long write(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining())
+            written += out.write(buffer, position + written);
+        return written;
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    @Override
+    public int getNumInstances() {
+        return numInstances;
+    }
+
+    @Override
+    public int getNextIndex() {
+        return next;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < numInstances;
+    }
+
+    @Override
+    public Instance next() throws PartitionProblemException {
+        if (!hasNext())
+            throw new PartitionProblemException("There are no more sets in the file");
+
+        Instance instance = load(next);
+        next++;
+        return instance;
+    }
+
+    @Override
+    public void skip() throws PartitionProblemException {
+        if (!hasNext())
+            throw new PartitionProblemException("There are no more sets in the file");
+
+        next++;
+    }
+
+    @Override
+    public void seekInstance(int index) throws PartitionProblemException {
+        if (index < 0 || index > numInstances)
+            throw new PartitionProblemException("There is no set number " + (index + 1) + " in the file");
+
+        next = index;
+    }
+
+    /**
+     * Maps a single set and decodes it
+     *
+     * @param index - the set number, starting at 0
+     * @return the indexed set
+     */
+    public Instance load(int index) throws PartitionProblemException {
+        MappedByteBuffer block;
+
+        try {
+            block = channel.map(FileChannel.MapMode.READ_ONLY, offsets[index], offsets[index + 1] - offsets[index]);
+        } catch (IOException e) {
+            throw new PartitionProblemException(e.getMessage(), e);
+        }
+
+        if (checksum(block.duplicate()) != checksums[index])
+            throw new PartitionProblemException("Corrupted binary file: checksum mismatch in set " + (index + 1));
+
+        IntBuffer ints = block.asIntBuffer();
+
+        int v = ints.get();
+        int r = ints.get();
+        int e = ints.get();
+
+        int[] coordinates = new int[2 * v];
+        int[] rectangleIds = new int[r];
+        int[] vertStart = new int[v + 1];
+        int[] vertRects = new int[e];
+
+        ints.get(coordinates).get(rectangleIds).get(vertStart).get(vertRects);
+
+        Vert[] verts = new Vert[v];
+        for (int i = 0; i < v; i++) {
+            verts[i] = new Vert(coordinates[2 * i], coordinates[2 * i + 1]);
+            for (int k = vertStart[i]; k < vertStart[i + 1]; k++)
+                verts[i].getRectangles().add(rectangleIds[vertRects[k]]);
+        }
+
+        return new Instance(verts, rectangleIds, vertStart, vertRects);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -1,58 +1,42 @@
 package rect_partition.utils;
 
 import java.io.FileWriter;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Scanner;
-import java.util.Set;
 
+import rect_partition.Instance;
 import rect_partition.Vert;
 
 public class DataConverter {
 
     private static final String DATA_FILE = "classes/rect_partition/clp_approaches/prolog_data.tmp";
 
-    public static void generatePrologDataFile(Scanner input) throws PartitionProblemException {
+    /**
+     * Writes the set as Prolog facts. Verts are numbered by their index plus one
+     * and only the rectangles to be covered are written, since they are the only
+     * ones the model constrains
+     *
+     * @param instance - the set to write
+     * @throws PartitionProblemException
+     */
+    public static void generatePrologDataFile(Instance instance) throws PartitionProblemException {
         try {
             FileWriter file = new FileWriter(DATA_FILE);
 
-            int nrects = input.nextInt();
-
-            file.write(String.format("nrects(%d).\n", nrects));
-
-            List<Vert> verts = new ArrayList<>();
-
-            List<RectangleCache> caches = new ArrayList<>();
-
-            for (int i = 0; i < nrects; i++) {
-
-                int r = input.nextInt();
-                int nverts = input.nextInt();
-
-                RectangleCache cache = new RectangleCache(r);
-
-                for (int j = 0; j < nverts; j++) {
-                    Vert v = new Vert(input.nextInt(), input.nextInt());
-
-                    if (!verts.contains(v)) {
-                        verts.add(v);
-                        file.write(String.format("v(%d, %d, %d).\n", verts.indexOf(v) + 1, v.getX(), v.getY()));
-                    }
-
-                    cache.verts.add(verts.indexOf(v) + 1);
-
-                }
-
-                caches.add(cache);
+            file.write(String.format("nrects(%d).\n", instance.getNumRectangles()));
 
+            for (int v = 0; v < instance.getNumVerts(); v++) {
+                Vert vert = instance.getVert(v);
+                file.write(String.format("v(%d, %d, %d).\n", v + 1, vert.getX(), vert.getY()));
             }
 
-            for (RectangleCache cache : caches) {
-                StringBuilder sb = new StringBuilder(String.format("r(%d, %d, [", cache.rectNum, cache.verts.size()));
+            int[] rectStart = instance.getRectStart();
+            int[] rectVerts = instance.getRectVerts();
+
+            for (int r = 0; r < instance.getNumRectangles(); r++) {
+                StringBuilder sb = new StringBuilder(
+                        String.format("r(%d, %d, [", instance.getRectangleId(r), instance.getRectangleDegree(r)));
 
-                for (int v : cache.verts) {
-                    sb.append(v);
+                for (int k = rectStart[r]; k < rectStart[r + 1]; k++) {
+                    sb.append(rectVerts[k] + 1);
                     sb.append(',');
                 }
 
@@ -63,14 +47,13 @@ public class DataConverter {
                 file.write(sb.toString());
             }
 
-            int ngoal = input.nextInt();
             StringBuilder sb = new StringBuilder();
             sb.append("goal([");
 
-            for (int i = 0; i < ngoal; i++) {
-                sb.append(String.valueOf(input.nextInt()));
+            for (int r = 0; r < instance.getNumRectangles(); r++) {
+                sb.append(String.valueOf(instance.getRectangleId(r)));
 
-                if (i != ngoal - 1) {
+                if (r != instance.getNumRectangles() - 1) {
                     sb.append(',');
                 }
             }
@@ -85,13 +68,4 @@ public class DataConverter {
         }
     }
 
-    private static class RectangleCache {
-        int rectNum;
-        Set<Integer> verts = new HashSet<>();
-
-        RectangleCache(int rectNum) {
-            this.rectNum = rectNum;
-        }
-    }
-
-}
\ No newline at end of file
+}
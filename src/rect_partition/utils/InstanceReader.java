@@ -0,0 +1,327 @@
+package rect_partition.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import rect_partition.Instance;
+import rect_partition.Vert;
+import rect_partition.VertTable;
+
+/**
+ * Reads problem sets from a file in the text format described in the README.
+ * The integers are decoded straight from the bytes of a buffered file channel,
+ * and the sets are read one at a time, so only the set being read is ever kept
+ * in memory. The file offset of every set seen so far is remembered, so going
+ * back to a set, or skipping past one that was already seen, is a seek.
+ */
+public class InstanceReader implements InstanceSource {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // The file offset of the first byte in the buffer
+    private long bufferOffset = 0;
+
+    private final int numInstances;
+
+    // The file offset where each set starts, or -1 if it was not reached yet
+    private final long[] offsets;
+    private int next = 0;
+
+    public InstanceReader(File file) throws IOException, PartitionProblemException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.buffer.limit(0);
+
+        try {
+            this.numInstances = nextInt();
+        } catch (PartitionProblemException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.offsets = new long[numInstances + 1];
+        Arrays.fill(offsets, -1);
+        offsets[0] = position();
+    }
+
+    @Override
+    public int getNumInstances() {
+        return numInstances;
+    }
+
+    /**
+     * @return the number of the set that the next call to next() will read,
+     *         starting at 0
+     */
+    @Override
+    public int getNextIndex() {
+        return next;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < numInstances;
+    }
+
+    /**
+     * Reads the next set
+     *
+     * @return the indexed set
+     * @throws PartitionProblemException if the file is malformed or there are no
+     *                                   more sets
+     */
+    @Override
+    public Instance next() throws PartitionProblemException {
+        if (!hasNext())
+            throw new PartitionProblemException("There are no more sets in the file");
+
+        int rectangles = nextInt();
+
+        VertTable verts = new VertTable();
+        Map<Integer, int[]> rectangleVerts = new HashMap<>(rectangles * 2);
+
+        for (int i = 0; i < rectangles; i++) {
+            int id = nextInt();
+            int numVerts = nextInt();
+
+            int[] row = new int[numVerts];
+            for (int j = 0; j < numVerts; j++) {
+                int x = nextInt();
+                int y = nextInt();
+
+                Vert v = verts.intern(x, y);
+                v.getRectangles().add(id);
+                row[j] = verts.indexOf(x, y);
+            }
+            rectangleVerts.put(id, distinct(row));
+        }
+
+        int goals = nextInt();
+        int[] rectangleIds = new int[goals];
+        Set<Integer> seen = new HashSet<>(goals * 2);
+        int numGoals = 0;
+
+        for (int i = 0; i < goals; i++) {
+            int id = nextInt();
+            if (!rectangleVerts.containsKey(id))
+                throw new PartitionProblemException("Rectangle " + id + " must be covered but has no verts");
+            if (seen.add(id))
+                rectangleIds[numGoals++] = id;
+        }
+
+        rectangleIds = Arrays.copyOf(rectangleIds, numGoals);
+
+        // Transpose the goal rectangle rows into vert rows
+        int numVerts = verts.size();
+        int[] vertStart = new int[numVerts + 1];
+
+        for (int r = 0; r < numGoals; r++) {
+            for (int v : rectangleVerts.get(rectangleIds[r]))
+                vertStart[v + 1]++;
+        }
+
+        for (int v = 0; v < numVerts; v++)
+            vertStart[v + 1] += vertStart[v];
+
+        int[] fill = Arrays.copyOf(vertStart, numVerts);
+        int[] vertRects = new int[vertStart[numVerts]];
+
+        for (int r = 0; r < numGoals; r++) {
+            for (int v : rectangleVerts.get(rectangleIds[r]))
+                vertRects[fill[v]++] = r;
+        }
+
+        next++;
+        offsets[next] = position();
+
+        return new Instance(verts.values().toArray(new Vert[0]), rectangleIds, vertStart, vertRects);
+    }
+
+    /**
+     * Skips the next set. If it was already read once this is a seek, otherwise
+     * the integers are decoded and dropped without building anything
+     *
+     * @throws PartitionProblemException
+     */
+    @Override
+    public void skip() throws PartitionProblemException {
+        if (!hasNext())
+            throw new PartitionProblemException("There are no more sets in the file");
+
+        if (offsets[next + 1] >= 0) {
+            seek(offsets[next + 1]);
+            next++;
+            return;
+        }
+
+        int rectangles = nextInt();
+        for (int i = 0; i < rectangles; i++) {
+            nextInt();
+            int numVerts = nextInt();
+            for (int j = 0; j < numVerts * 2; j++)
+                nextInt();
+        }
+
+        int goals = nextInt();
+        for (int i = 0; i < goals; i++)
+            nextInt();
+
+        next++;
+        offsets[next] = position();
+    }
+
+    /**
+     * Positions the reader so that the next call to next() reads the given set
+     *
+     * @param index - the set number, starting at 0
+     * @throws PartitionProblemException
+     */
+    @Override
+    public void seekInstance(int index) throws PartitionProblemException {
+        if (index < 0 || index > numInstances)
+            throw new PartitionProblemException("There is no set number " + (index + 1) + " in the file");
+
+        if (offsets[index] >= 0) {
+            seek(offsets[index]);
+            next = index;
+            return;
+        }
+
+        // Go to the last known set before the index and skip forward from there
+        int known = index;
+        while (offsets[known] < 0)
+            known--;
+
+        seek(offsets[known]);
+        next = known;
+
+        while (next < index)
+            skip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long position() {
+        return bufferOffset + buffer.position();
+    }
+
+    private void seek(long offset) throws PartitionProblemException {
+        if (offset >= bufferOffset && offset <= bufferOffset + buffer.limit()) {
+            buffer.position((int) (offset - bufferOffset));
+            return;
+        }
+
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            throw new PartitionProblemException(e.getMessage(), e);
+        }
+
+        bufferOffset = offset;
+        buffer.clear();
+        buffer.limit(0);
+    }
+
+    /**
+     * Makes sure there is at least one byte left in the buffer
+     *
+     * @return false at the end of the file
+     */
+    private boolean fill() throws PartitionProblemException {
+        if (buffer.hasRemaining())
+            return true;
+
+        try {
+            bufferOffset += buffer.limit();
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            return read > 0;
+        } catch (IOException e) {
+            throw new PartitionProblemException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the next integer, skipping any whitespace before it
+     *
+     * @return the integer
+     * @throws PartitionProblemException if the file ends or has something that is
+     *                                   not an integer
+     */
+    private int nextInt() throws PartitionProblemException {
+        byte b;
+
+        do {
+            if (!fill())
+                throw new PartitionProblemException("Unexpected end of file");
+            b = buffer.get();
+        } while (b == ' ' || b == '\n' || b == '\r' || b == '\t');
+
+        boolean negative = b == '-';
+        if (negative) {
+            if (!fill())
+                throw new PartitionProblemException("Unexpected end of file");
+            b = buffer.get();
+        }
+
+        if (b < '0' || b > '9')
+            throw new PartitionProblemException("Unexpected character '" + (char) b + "' at " + (position() - 1));
+
+        long value = 0;
+
+        while (true) {
+            value = value * 10 + (b - '0');
+
+            if (value > (long) Integer.MAX_VALUE + 1)
+                throw new PartitionProblemException("Integer too large at " + (position() - 1));
+
+            if (!fill())
+                break;
+
+            b = buffer.get(buffer.position());
+            if (b < '0' || b > '9')
+                break;
+
+            buffer.get();
+        }
+
+        value = negative ? -value : value;
+
+        if (value > Integer.MAX_VALUE)
+            throw new PartitionProblemException("Integer too large at " + (position() - 1));
+
+        return (int) value;
+    }
+
+    /**
+     * A rectangle may list the same vert more than once; it must only appear once
+     * in the adjacency
+     */
+    private static int[] distinct(int[] row) {
+        int[] sorted = row.clone();
+        Arrays.sort(sorted);
+
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[n++] = sorted[i];
+        }
+
+        return Arrays.copyOf(sorted, n);
+    }
+
+}
@@ -0,0 +1,73 @@
+package rect_partition.utils;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import rect_partition.Instance;
+
+/**
+ * A file of problem sets that can be read one set at a time, in order or by
+ * set number
+ */
+public interface InstanceSource extends Closeable {
+
+    int getNumInstances();
+
+    /**
+     * @return the number of the set that the next call to next() will read,
+     *         starting at 0
+     */
+    int getNextIndex();
+
+    boolean hasNext();
+
+    /**
+     * Reads the next set
+     *
+     * @return the indexed set
+     * @throws PartitionProblemException if the file is malformed or there are no
+     *                                   more sets
+     */
+    Instance next() throws PartitionProblemException;
+
+    /**
+     * Skips the next set without building it
+     *
+     * @throws PartitionProblemException
+     */
+    void skip() throws PartitionProblemException;
+
+    /**
+     * Positions the source so that the next call to next() reads the given set
+     *
+     * @param index - the set number, starting at 0
+     * @throws PartitionProblemException
+     */
+    void seekInstance(int index) throws PartitionProblemException;
+
+    /**
+     * Opens a file of problem sets, either in the text format of the README or
+     * compiled with {@link BinaryInstanceFile#compile(File, File)}
+     *
+     * @param file - the file to open
+     * @return the source for the file
+     */
+    static InstanceSource open(File file) throws IOException, PartitionProblemException {
+        int magic = 0;
+
+        if (file.length() >= Integer.BYTES) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                magic = in.readInt();
+            }
+        }
+
+        if (magic == BinaryInstanceFile.MAGIC)
+            return new BinaryInstanceFile(file);
+
+        return new InstanceReader(file);
+    }
+
+}
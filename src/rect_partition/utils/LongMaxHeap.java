@@ -0,0 +1,70 @@
+package rect_partition.utils;
+
+import java.util.Arrays;
+
+/**
+ * A binary max-heap of primitive longs. Callers pack a priority and an index
+ * into each key, so no objects are allocated per entry.
+ */
+public class LongMaxHeap {
+
+    private long[] keys;
+    private int size = 0;
+
+    public LongMaxHeap(int capacity) {
+        keys = new long[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void push(long key) {
+        if (size == keys.length)
+            keys = Arrays.copyOf(keys, size * 2);
+
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] >= key)
+                break;
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        keys[i] = key;
+    }
+
+    public long peek() {
+        return keys[0];
+    }
+
+    public long pop() {
+        long top = keys[0];
+        long last = keys[--size];
+
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] > keys[child])
+                child++;
+            if (last >= keys[child])
+                break;
+            keys[i] = keys[child];
+            i = child;
+        }
+        if (size > 0)
+            keys[i] = last;
+
+        return top;
+    }
+
+}
@@ -0,0 +1,92 @@
+package rect_partition.utils;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size table of the states already seen by a search, keyed by their
+ * 64 bit hashes. Each entry holds the whole hash and the depth at which the
+ * state was seen plus one, so an empty entry has depth 0. A hash is looked up
+ * in a few consecutive entries; when they are all taken, the deepest state is
+ * replaced, since a state seen closer to the root prunes more of the search.
+ *
+ * Forgetting a state only means it may be expanded again, and two states only
+ * share the whole 64 bits of their hashes with a negligible probability, so the
+ * searches stay complete with a bounded amount of memory.
+ */
+public class TranspositionTable {
+
+    public static int BITS = 22;
+
+    private static final int PROBES = 4;
+
+    private final long[] keys;
+    private final int[] depths;
+    private final int mask;
+
+    /**
+     * A table with 2^BITS entries
+     */
+    public TranspositionTable() {
+        this(BITS);
+    }
+
+    /**
+     * @param bits - the table has 2^bits entries
+     */
+    public TranspositionTable(int bits) {
+        this.keys = new long[1 << bits];
+        this.depths = new int[1 << bits];
+        this.mask = keys.length - 1;
+    }
+
+    /**
+     * Records a state seen at a depth
+     *
+     * @param hash  - the hash of the state
+     * @param depth - the depth of the state in the search
+     * @return false if the state was already seen at the same depth or closer to
+     *         the root, in which case it does not need to be expanded again
+     */
+    public boolean visit(long hash, int depth) {
+        int stored = depth + 1;
+
+        int home = (int) hash & mask;
+        int victim = home;
+        int victimDepth = -1;
+
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+
+            if (depths[slot] == 0) {
+                keys[slot] = hash;
+                depths[slot] = stored;
+                return true;
+            }
+
+            if (keys[slot] == hash) {
+                if (depths[slot] <= stored)
+                    return false;
+
+                depths[slot] = stored;
+                return true;
+            }
+
+            if (depths[slot] > victimDepth) {
+                victimDepth = depths[slot];
+                victim = slot;
+            }
+        }
+
+        keys[victim] = hash;
+        depths[victim] = stored;
+        return true;
+    }
+
+    /**
+     * Forgets every state
+     */
+    public void clear() {
+        Arrays.fill(depths, 0);
+    }
+
+}
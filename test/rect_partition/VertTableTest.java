@@ -0,0 +1,73 @@
+package rect_partition;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Regression check for VertTable: distinct coordinates never alias, including
+ * the pairs whose decimal strings concatenate to the same text and the
+ * extremes of int. Exits with status 1 on the first failure.
+ */
+public class VertTableTest {
+
+    public static void main(String[] args) {
+        int[][] coordinates = {
+                { 1, 23 }, { 12, 3 }, { 123, 0 }, { 0, 123 },
+                { -1, 23 }, { 1, -23 }, { -1, -23 }, { -12, 3 },
+                { 0, 0 }, { 0, -1 }, { -1, 0 }, { -1, -1 },
+                { Integer.MIN_VALUE, 0 }, { 0, Integer.MIN_VALUE },
+                { Integer.MAX_VALUE, 0 }, { 0, Integer.MAX_VALUE },
+                { Integer.MIN_VALUE, Integer.MAX_VALUE }, { Integer.MAX_VALUE, Integer.MIN_VALUE },
+                { Integer.MIN_VALUE, Integer.MIN_VALUE }, { Integer.MAX_VALUE, Integer.MAX_VALUE },
+                { Integer.MIN_VALUE, -1 }, { -1, Integer.MIN_VALUE },
+                { Integer.MAX_VALUE, -1 }, { -1, Integer.MAX_VALUE } };
+
+        // A small table, so the pairs are also checked across growths
+        VertTable table = new VertTable(1);
+        Set<Integer> indexes = new HashSet<>();
+
+        for (int[] c : coordinates) {
+            Vert v = table.intern(c[0], c[1]);
+            int index = table.indexOf(c[0], c[1]);
+
+            check(v.getX() == c[0] && v.getY() == c[1], "wrong coordinates for " + describe(c));
+            check(indexes.add(index), describe(c) + " aliases an earlier vert at index " + index);
+        }
+
+        // Interning again gives the same vert and index
+        for (int i = 0; i < coordinates.length; i++) {
+            int[] c = coordinates[i];
+            Vert v = table.intern(c[0], c[1]);
+
+            check(table.indexOf(c[0], c[1]) == i, describe(c) + " changed index");
+            check(v == table.get(i), describe(c) + " was interned twice");
+        }
+
+        check(table.size() == coordinates.length, "expected " + coordinates.length + " verts, got " + table.size());
+
+        // A grid around the origin, through several growths of the table
+        table = new VertTable(1);
+        int n = 0;
+        for (int x = -50; x <= 50; x++) {
+            for (int y = -50; y <= 50; y++) {
+                table.intern(x, y);
+                check(table.indexOf(x, y) == n++, describe(new int[] { x, y }) + " got a wrong index");
+            }
+        }
+        check(table.size() == n, "expected " + n + " verts in the grid, got " + table.size());
+
+        System.out.println("VertTableTest: OK");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("VertTableTest: " + message);
+            System.exit(1);
+        }
+    }
+
+    private static String describe(int[] c) {
+        return "(" + c[0] + ", " + c[1] + ")";
+    }
+
+}